@@ -36,3 +36,21 @@ application {
     // Define the main class for the application.
     mainClass.set("compiler.Compiler")
 }
+
+// The Vector API (used by the lexer to skip trivia) is still an incubator module, which javac and java warn about:
+// the vector scanner is only built with -PvectorTrivia. Without it, the lexer stays on its scalar loops.
+if (project.hasProperty("vectorTrivia")) {
+    application {
+        applicationDefaultJvmArgs = listOf("--add-modules", "jdk.incubator.vector")
+    }
+
+    tasks.withType<JavaCompile> {
+        options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+    }
+
+    tasks.withType<Test> {
+        jvmArgs("--add-modules", "jdk.incubator.vector")
+    }
+} else {
+    sourceSets.main.get().java.exclude("**/VectorTriviaScanner.java")
+}
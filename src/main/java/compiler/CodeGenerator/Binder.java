@@ -0,0 +1,122 @@
+package compiler.CodeGenerator;
+
+import compiler.Exceptions.CodeGeneratorException.CodeGeneratorException;
+import compiler.Exceptions.CodeGeneratorException.UnexpectedError;
+import compiler.Nodes.*;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+
+/**
+ * Resolves the names of a program once, before its code is generated. Every variable use (IdentifierNode) gets the
+ * declaration of its local slot or static field, every call (FunctionCallNode) the procedure or record it builds,
+ * and every record access (RecordAccessNode) the record and the descriptor of its field. The declarations are made
+ * in the scopes in the order the code is generated, so a name is bound to the declaration that was visible at that
+ * point, and the generation reads the handles instead of looking the names up in the scopes.
+ */
+public final class Binder {
+    private Binder() {
+    }
+
+    /**
+     * Binds a program in the scope of its class.
+     */
+    public static void bind(ProgramNode program, Scope scope) throws CodeGeneratorException {
+        for (CVVNode.Const c : program.getConstants())
+            global(c, scope);
+        for (RecordDeclarationNode r : program.getRecords())
+            scope.declareRec(r);
+        for (CVVNode v : program.getValVar())
+            global(v, scope);
+        for (ProcedureNode p : program.getProcedures())
+            bind(p, scope);
+
+        // the initializers of the variables run in <clinit>, after every declaration (see CodeGenerator.callStatic)
+        for (CVVNode v : program.getValVar())
+            if (v instanceof CVVNode.Var)
+                bind(v.expression, scope);
+    }
+
+    /**
+     * Binds a procedure (and declares it) in the scope of its class.
+     */
+    public static void bind(ProcedureNode procedure, Scope scope) throws CodeGeneratorException {
+        BlockNode block;
+        try {
+            block = procedure.getBlock();
+        } catch (ParseException e) {
+            throw new UnexpectedError("Syntax error", e.getMessage());
+        }
+
+        scope.declareProc(procedure.identifier.name, procedure);
+        Scope local = new Scope(block, scope, scope.getClassName());
+        for (ParameterNode p : procedure.params)
+            local.declareCVV(p.identifier.name, new CVVNode.Var(p.identifier, p.type, null), false);
+        bind(block, local);
+    }
+
+    private static void global(CVVNode cvv, Scope scope) throws CodeGeneratorException {
+        cvv.binding = scope.declareCVV(cvv.identifier.name, cvv, true);
+        if (!(cvv instanceof CVVNode.Var)) // folded into the field's constant value
+            bind(cvv.expression, scope);
+    }
+
+    private static void bind(ASTNode node, Scope scope) throws CodeGeneratorException {
+        if (node == null || node instanceof TypeNode) // the names of the types aren't variables
+            return;
+
+        if (node instanceof IdentifierNode id) {
+            id.binding = scope.cvvLookup(id.name);
+        } else if (node instanceof CVVNode cvv) { // local, visible in its own initializer
+            cvv.binding = scope.declareCVV(cvv.identifier.name, cvv, false);
+            bind(cvv.expression, scope);
+        } else if (node instanceof DeleteNode delete) {
+            scope.delete(delete.deleted.name);
+        } else if (node instanceof FunctionCallNode call) {
+            call.procedure = scope.procLookup(call.identifier.name);
+            call.record = call.procedure == null ? scope.recordLookup(call.identifier.name) : null;
+            for (Expr arg : call.args)
+                bind(arg, scope);
+        } else if (node instanceof ArrayAccessNode access) {
+            bind(access.identifier, scope);
+            bind(access.index, scope);
+        } else if (node instanceof RecordAccessNode access) {
+            bind(access.record, scope);
+            bindField(access, scope);
+        } else {
+            ArrayList<ASTNode> children = new ArrayList<>();
+            try {
+                node.children(children);
+            } catch (ParseException e) {
+                throw new UnexpectedError("Syntax error", e.getMessage());
+            }
+            for (ASTNode child : children)
+                bind(child, scope);
+        }
+    }
+
+    /**
+     * Binds the record of a record access (from the type of its variable) and the descriptor of the field.
+     */
+    private static void bindField(RecordAccessNode access, Scope scope) {
+        IdentifierNode variable = access.record instanceof ArrayAccessNode array ? array.identifier
+                : access.record instanceof IdentifierNode id ? id : null;
+        if (variable == null || variable.binding == null)
+            return;
+
+        TypeNode type = variable.binding.declaration.type;
+        if (type instanceof TypeNode.Array array)
+            type = array.baseType;
+        if (!(type instanceof TypeNode.Identifier name))
+            return;
+
+        access.recordType = scope.recordLookup(name.identifier.name);
+        if (access.recordType == null)
+            return;
+        try {
+            access.fieldDescriptor = access.recordType.declaration.getFieldDescriptor(access.field.name);
+        } catch (CodeGeneratorException e) {
+            // no such field: reported by the generation of the access
+        }
+    }
+}
@@ -10,6 +10,8 @@ import compiler.Parser.Parser;
 import compiler.SemanticAnalyzer.SType;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.SemanticVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
@@ -21,7 +23,9 @@ import static org.objectweb.asm.Opcodes.*;
 
 public class CodeGenerator {
     ClassWriter cw;
-    final ASTNode ast;
+    final ProgramNode ast;
+    private Scope mainScope; // of the last generation, kept to generate a procedure again
+    private byte[] programClass;
 
     public CodeGenerator(Parser parser) throws ParseException, LexerException, SemanticException {
         this(parser, true);
@@ -29,7 +33,14 @@ public class CodeGenerator {
 
     public CodeGenerator(Parser parser, boolean semanticChecks)
             throws ParseException, LexerException, SemanticException {
-        this.ast = parser.getAST();
+        this(parser.getAST(), semanticChecks);
+    }
+
+    /**
+     * @param ast the AST of a program parsed without error.
+     */
+    public CodeGenerator(ProgramNode ast, boolean semanticChecks) throws ParseException, SemanticException {
+        this.ast = ast;
 
         // call the semantic analyzer
         if (semanticChecks) {
@@ -59,10 +70,8 @@ public class CodeGenerator {
                         mv.visitFieldInsn(PUTSTATIC, "Program", cvv.declaration.identifier.name,
                                 nodeToASMType(cvv.declaration.type).getDescriptor());
                     } else if (cvv.declaration.type instanceof TypeNode.Identifier tni) {
-                        Scope.RecordDeclaration rec = scope.recordLookup(tni.identifier.name);
-
                         mv.visitFieldInsn(PUTSTATIC, "Program", cvv.declaration.identifier.name,
-                                "L" + rec.declaration.identifier.name + ";");
+                                tni.getDescriptor());
                     }
                 }
             }
@@ -190,14 +199,16 @@ public class CodeGenerator {
         // public class <className> extends Object {}
         cw.visit(V1_8, ACC_PUBLIC, "Program", null, "java/lang/Object", null);
 
-        Scope mainScope = new Scope(null, null, "Program");
+        mainScope = new Scope(null, null, "Program");
 
         // traverse the AST while calling accept recursively
+        Binder.bind(ast, mainScope);
         ast.accept(cw, mainScope);
         callStatic(cw, mainScope);
         cw.visitEnd();
+        programClass = cw.toByteArray();
 
-        byte[] mainClass = cw.toByteArray();
+        byte[] mainClass = programClass;
 
         ByteArrayClassLoader loader = new ByteArrayClassLoader();
 
@@ -215,16 +226,18 @@ public class CodeGenerator {
         // public class <className> extends Object {}
         cw.visit(V1_8, ACC_PUBLIC, "Program", null, "java/lang/Object", null);
 
-        Scope mainScope = new Scope(null, null, "Program");
+        mainScope = new Scope(null, null, "Program");
 
         // traverse the AST while calling accept recursively
+        Binder.bind(ast, mainScope);
         ast.accept(cw, mainScope);
         callStatic(cw, mainScope);
         cw.visitEnd();
+        programClass = cw.toByteArray();
 
         ArrayList<GeneratedClass> bytecodes = new ArrayList<>();
 
-        bytecodes.add(new GeneratedClass("Program", cw.toByteArray()));
+        bytecodes.add(new GeneratedClass("Program", programClass));
 
         mainScope.recordDeclarations.forEach((name, rec) -> {
             bytecodes.add(new GeneratedClass(name, rec.declaration.cw.toByteArray()));
@@ -233,6 +246,64 @@ public class CodeGenerator {
         return bytecodes;
     }
 
+    /**
+     * Generates a procedure again after an edit of its body. Only its method is generated, the other members of the
+     * Program class are copied from the last generation (generateProgram() or generateBytecode()).
+     *
+     * @param updated the new version of a procedure of the program, with the same name and descriptor.
+     * @return the new bytecode of the Program class.
+     */
+    public byte[] generateProcedure(ProcedureNode updated) throws CodeGeneratorException {
+        if (programClass == null)
+            throw new IllegalStateException("The program hasn't been generated yet.");
+
+        ClassWriter fragment = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        fragment.visit(V1_8, ACC_PUBLIC, "Program", null, "java/lang/Object", null);
+        String name = updated.identifier.name;
+
+        // bound like in generateBytecode(): the procedures declared after this one aren't visible yet
+        Scope scope = new Scope(null, null, mainScope.getClassName());
+        scope.cvvDeclarations.putAll(mainScope.cvvDeclarations);
+        scope.recordDeclarations.putAll(mainScope.recordDeclarations);
+        for (ProcedureNode p : ast.getProcedures()) {
+            if (p.identifier.name.equals(name))
+                break;
+            scope.procDeclarations.put(p.identifier.name, mainScope.procLookup(p.identifier.name));
+        }
+        Binder.bind(updated, scope);
+        updated.accept(fragment, scope);
+        fragment.visitEnd();
+        mainScope.procDeclarations.put(name, scope.procLookup(name));
+
+        String descriptor = updated.getDescriptors();
+        ClassReader reader = new ClassReader(programClass);
+        ClassWriter writer = new ClassWriter(reader, 0); // the other methods are copied without being visited
+        reader.accept(new ClassVisitor(ASM9, writer) {
+            @Override
+            public MethodVisitor visitMethod(int access, String methodName, String methodDescriptor, String signature,
+                    String[] exceptions) {
+                if (methodName.equals(name) && methodDescriptor.equals(descriptor))
+                    return null; // the old version
+                return super.visitMethod(access, methodName, methodDescriptor, signature, exceptions);
+            }
+
+            @Override
+            public void visitEnd() {
+                new ClassReader(fragment.toByteArray()).accept(new ClassVisitor(ASM9) {
+                    @Override
+                    public MethodVisitor visitMethod(int access, String methodName, String methodDescriptor,
+                            String signature, String[] exceptions) {
+                        return writer.visitMethod(access, methodName, methodDescriptor, signature, exceptions);
+                    }
+                }, 0);
+                super.visitEnd();
+            }
+        }, 0);
+
+        programClass = writer.toByteArray();
+        return programClass;
+    }
+
     public static class GeneratedClass {
         public String name;
         public byte[] bytecode;
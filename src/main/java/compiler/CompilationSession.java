@@ -0,0 +1,147 @@
+package compiler;
+
+import compiler.CodeGenerator.CodeGenerator;
+import compiler.CodeGenerator.CodeGenerator.GeneratedClass;
+import compiler.Exceptions.CodeGeneratorException.CodeGeneratorException;
+import compiler.Exceptions.LexerException;
+import compiler.Exceptions.SemanticException.SemanticException;
+import compiler.Lexer.IncrementalLexer;
+import compiler.Lexer.LB;
+import compiler.Lexer.Lexer;
+import compiler.Lexer.Token;
+import compiler.Lexer.TokenBuffer;
+import compiler.Nodes.ProcedureNode;
+import compiler.Nodes.ProgramNode;
+import compiler.Parser.Parser;
+import compiler.SemanticAnalyzer.SymbolTable;
+import compiler.Visitors.SemanticVisitor;
+
+import java.nio.CharBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Compilation of a source edited over time, for editor integrations. The session keeps the tokens, the AST, the
+ * symbol table and the bytecode of the last compilation. An edit inside a procedure is relexed (see
+ * IncrementalLexer), then only that procedure is parsed, checked against the unchanged declarations and generated
+ * again: the other methods are copied from the previous class. Any other edit (or an edit after a failed one)
+ * compiles the whole source again.
+ * The offsets of the nodes after an edited procedure aren't shifted, only the spans of the procedures are.
+ */
+public class CompilationSession {
+    private TokenBuffer tokens;
+    private ProgramNode ast;
+    private SymbolTable st;
+    private CodeGenerator cg;
+    private ArrayList<GeneratedClass> classes; // the Program class first
+    private int[] starts; // offset of the 'proc' token of each procedure
+    private int[] ends; // offset after the closing brace of each procedure
+    private boolean valid; // false after a failed compilation
+
+    public CompilationSession(String source)
+            throws LexerException, ParseException, SemanticException, CodeGeneratorException {
+        tokens = new Lexer(CharBuffer.wrap(source)).tokenize();
+        compile();
+    }
+
+    /**
+     * Applies an edit to the source and compiles it again.
+     *
+     * @param offset        where the edit starts (in chars).
+     * @param removedLength number of chars removed at the offset.
+     * @param inserted      text inserted at the offset.
+     * @return true if only the edited procedure was compiled again.
+     */
+    public boolean edit(int offset, int removedLength, String inserted)
+            throws LexerException, ParseException, SemanticException, CodeGeneratorException {
+        int p = valid ? enclosingProcedure(offset, removedLength) : -1;
+        tokens = IncrementalLexer.relex(tokens, offset, removedLength, inserted);
+        if (p < 0) {
+            compile();
+            return false;
+        }
+
+        valid = false;
+        ProcedureNode old = ast.getProcedures().get(p);
+        LB lb = new LB(tokens, tokenAt(starts[p]));
+        ProcedureNode updated = new Parser(lb).parseProcedure();
+        Token next = tokens.token(lb.cursor());
+        if ((next != Token.PROC && next != Token.EOF) || !updated.identifier.equals(old.identifier)
+                || !updated.getDescriptors().equals(old.getDescriptors())) {
+            compile(); // the edit changed the structure of the program or the signature of the procedure
+            return false;
+        }
+
+        ast.replaceProcedure(p, updated, st);
+        classes.set(0, new GeneratedClass("Program", cg.generateProcedure(updated)));
+
+        int delta = inserted.length() - removedLength;
+        ends[p] += delta;
+        for (int i = p + 1; i < starts.length; i++) {
+            starts[i] += delta;
+            ends[i] += delta;
+        }
+        valid = true;
+        return true;
+    }
+
+    /**
+     * @return the AST of the last compilation.
+     */
+    public ProgramNode getAST() {
+        return ast;
+    }
+
+    /**
+     * @return the classes of the last compilation, the Program class first.
+     */
+    public ArrayList<GeneratedClass> getBytecode() {
+        return classes;
+    }
+
+    private void compile() throws LexerException, ParseException, SemanticException, CodeGeneratorException {
+        valid = false;
+        ast = new Parser(tokens).getAST();
+        st = new SymbolTable();
+        ast.accept(new SemanticVisitor(), st);
+        cg = new CodeGenerator(ast, false);
+        classes = cg.generateBytecode();
+
+        // the procedures are the last declarations: each one ends before the next one (or the EOF)
+        ArrayList<ProcedureNode> procedures = ast.getProcedures();
+        starts = new int[procedures.size()];
+        ends = new int[procedures.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = procedures.get(i).offset;
+            int next = i + 1 < starts.length ? tokenAt(procedures.get(i + 1).offset) : tokens.size() - 1;
+            ends[i] = tokens.start(next - 1) + tokens.length(next - 1);
+        }
+        valid = true;
+    }
+
+    /**
+     * @return the procedure containing the edit (not touching its first or last char), or -1.
+     */
+    private int enclosingProcedure(int offset, int removedLength) {
+        int i = Arrays.binarySearch(starts, offset);
+        i = i >= 0 ? i - 1 : -i - 2; // last procedure starting before the offset
+        return i >= 0 && offset + removedLength < ends[i] ? i : -1;
+    }
+
+    /**
+     * @return the index of the token starting at the offset.
+     */
+    private int tokenAt(int offset) {
+        int low = 0;
+        int high = tokens.size() - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tokens.start(middle) < offset)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+}
@@ -9,14 +9,21 @@ import compiler.Exceptions.CodeGeneratorException.CodeGeneratorException;
 import compiler.Exceptions.LexerException;
 import compiler.Exceptions.SemanticException.SemanticException;
 import compiler.Lexer.Lexer;
+import compiler.Lexer.SourceLoader;
+import compiler.Lexer.TokenBuffer;
+import compiler.Nodes.ASTArena;
+import compiler.Nodes.ASTCodec;
+import compiler.Nodes.ProgramNode;
 import compiler.Parser.Parser;
 
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.Scanner;
 
 public class Compiler {
     public static void main(String[] args)
@@ -40,27 +47,59 @@ public class Compiler {
             System.exit(1);
         }
 
-        Scanner scanner;
+        ByteBuffer source;
         try {
-            scanner = new Scanner(new File(inputFile));
-        } catch (FileNotFoundException e) {
+            source = SourceLoader.loadBytes(Path.of(inputFile));
+        } catch (IOException e) {
             throw new RuntimeException("Error while opening input file.");
         }
 
-        StringBuilder content = new StringBuilder();
-        while (scanner.hasNextLine()) {
-            content.append(scanner.nextLine()).append("\n");
-        }
-        scanner.close();
-
         // --- compile ---
 
-        StringReader reader = new StringReader(content.toString());
-        Lexer lexer = new Lexer(reader);
-        Parser parser = new Parser(lexer);
+        Lexer lexer = new Lexer(source);
 
-        CodeGenerator cg = new CodeGenerator(parser, true);
-        Class<?> clazz = cg.generateProgram();
+        CodeGenerator cg;
+        Class<?> clazz;
+        try {
+            // the AST of an unchanged source is loaded from its cache, next to the source
+            Path cache = Path.of(inputFile + ".ast");
+            byte[] hash = ASTCodec.hash(source);
+            ProgramNode ast = loadAST(cache, hash);
+            if (ast == null) {
+                TokenBuffer tokens = lexer.tokenize(); // large sources are lexed in parallel chunks
+                ArrayList<ParseException> syntaxErrors = new ArrayList<>();
+                // only the bodies of the procedures reachable from main are parsed and compiled
+                ast = Parser.lazy(tokens).getAST(syntaxErrors);
+                if (syntaxErrors.isEmpty()) {
+                    try {
+                        ast.retainReachable();
+                    } catch (ParseException e) { // parsed again eagerly, to report every syntax error
+                        new Parser(tokens).getAST(syntaxErrors);
+                        if (syntaxErrors.isEmpty())
+                            syntaxErrors.add(e);
+                    }
+                }
+                if (!syntaxErrors.isEmpty()) {
+                    for (ParseException e : syntaxErrors) { // all of them, the first one is thrown
+                        locate(inputFile, lexer, e.getErrorOffset()); // -1 is unknown
+                        System.err.println("    " + e.getMessage());
+                    }
+                    throw syntaxErrors.get(0);
+                }
+                storeAST(cache, ASTCodec.encode(ast, hash));
+            }
+            cg = new CodeGenerator(ast, true);
+            clazz = cg.generateProgram();
+        } catch (LexerException e) {
+            locate(inputFile, lexer, e.getOffset());
+            throw e;
+        } catch (SemanticException e) {
+            locate(inputFile, lexer, e.getOffset());
+            throw e;
+        } catch (CodeGeneratorException e) {
+            locate(inputFile, lexer, e.getOffset());
+            throw e;
+        }
 
         // --- write to file ---
 
@@ -93,4 +132,37 @@ public class Compiler {
             }
         }
     }
+
+    /**
+     * @return the cached AST, or null if there is none for this version of the source.
+     */
+    private static ProgramNode loadAST(Path cache, byte[] hash) {
+        try {
+            ASTArena arena = Files.exists(cache) ? ASTCodec.arena(Files.readAllBytes(cache), hash) : null;
+            if (arena == null)
+                return null;
+            // only the bodies of the procedures reachable from main are built from the arena
+            ProgramNode ast = arena.program();
+            ast.retainReachable();
+            return ast;
+        } catch (IOException | ParseException | RuntimeException e) {
+            return null; // corrupted or unreadable: parsed again
+        }
+    }
+
+    private static void storeAST(Path cache, byte[] data) {
+        try {
+            Files.write(cache, data);
+        } catch (IOException e) {
+            System.err.println("Couldn't write the AST cache " + cache + ".");
+        }
+    }
+
+    /**
+     * Prints the line and column of an error (the LineMap is only built here, when a compilation fails).
+     */
+    private static void locate(String inputFile, Lexer lexer, int offset) throws LexerException {
+        if (offset >= 0)
+            System.err.println(inputFile + ":" + lexer.lines().format(offset) + ": error");
+    }
 }
@@ -3,11 +3,20 @@ package compiler.Exceptions;
 public class LexerException extends Exception {
     private final String name;
     private final String description;
+    private final int offset;
 
     public LexerException(String name, String description) {
+        this(name, description, -1);
+    }
+
+    /**
+     * @param offset offset of the error in the source (see LineMap), -1 if unknown.
+     */
+    public LexerException(String name, String description, int offset) {
         super();
         this.name = name;
         this.description = description;
+        this.offset = offset;
     }
 
     public String getName() {
@@ -18,6 +27,10 @@ public class LexerException extends Exception {
         return description;
     }
 
+    public int getOffset() {
+        return offset;
+    }
+
     @Override
     public String toString() {
         return "SemanticException: " + name + "\n" + description;
@@ -3,6 +3,7 @@ package compiler.Exceptions.SemanticException;
 public class SemanticException extends Exception {
     private final String name;
     private final String description;
+    private int offset = -1;
 
     public SemanticException(String name, String description) {
         super();
@@ -18,6 +19,25 @@ public class SemanticException extends Exception {
         return description;
     }
 
+    /**
+     * @return offset in the source of the node that caused the error (see LineMap), -1 if unknown.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Sets the offset of the error, unless a more precise one was already set.
+     *
+     * @param offset offset in the source of the node being checked.
+     * @return this exception.
+     */
+    public SemanticException locate(int offset) {
+        if (this.offset < 0)
+            this.offset = offset;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "SemanticException: " + name + "\n" + description;
@@ -0,0 +1,196 @@
+package compiler.Lexer;
+
+import java.util.Arrays;
+
+/**
+ * Transition tables of the deterministic finite automaton used by the Lexer.
+ * Every char is first mapped to a character class, then the next state is read from a flat
+ * (state x class) table. Every state except START is accepting, so the longest match is simply
+ * the longest run of valid transitions.
+ */
+final class DFA {
+    // character classes
+    static final int C_OTHER = 0;
+    static final int C_LETTER = 1; // identifier start (letters, '_', '$')
+    static final int C_IDPART = 2; // identifier part that can't start one (non ASCII only)
+    static final int C_DIGIT = 3;
+    static final int C_DOT = 4;
+    static final int C_QUOTE = 5;
+    static final int C_SLASH = 6;
+    static final int C_LT = 7;
+    static final int C_GT = 8;
+    static final int C_EQ = 9;
+    static final int C_NEWLINE = 10;
+    static final int C_BLANK = 11;
+    static final int C_PUNCT = 12; // single char tokens: ; , [ ] { } ( ) % * - +
+    static final int CLASSES = 13;
+
+    // states
+    static final int START = 0;
+    static final int IDENT = 1;
+    static final int INT = 2;
+    static final int INT_DOT = 3; // "1."
+    static final int REAL = 4;
+    static final int DOT = 5;
+    static final int STRING = 6; // opened but not closed yet
+    static final int STRING_END = 7;
+    static final int SLASH = 8;
+    static final int COMMENT = 9;
+    static final int LT = 10;
+    static final int LEQ = 11;
+    static final int DIFF = 12;
+    static final int GT = 13;
+    static final int GEQ = 14;
+    static final int ASSIGN = 15;
+    static final int EQUAL = 16;
+    static final int PUNCT = 17;
+    static final int BLANK = 18;
+    static final int STATES = 19;
+
+    static final byte DEAD = -1;
+
+    /** Character class of every ASCII char. */
+    static final byte[] CLASS_OF = new byte[128];
+
+    /** Next state, indexed by state * CLASSES + class (DEAD when the token ends). */
+    static final byte[] NEXT = new byte[STATES * CLASSES];
+
+    /** Token produced by each state (IDENT tokens are then checked against the keywords). */
+    static final Token[] ACCEPT = new Token[STATES];
+
+    /** Token of the single char punctuation symbols. */
+    static final Token[] PUNCTUATION = new Token[128];
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++)
+            CLASS_OF[c] = C_LETTER;
+        for (int c = 'A'; c <= 'Z'; c++)
+            CLASS_OF[c] = C_LETTER;
+        CLASS_OF['_'] = C_LETTER;
+        CLASS_OF['$'] = C_LETTER;
+        for (int c = '0'; c <= '9'; c++)
+            CLASS_OF[c] = C_DIGIT;
+        CLASS_OF['.'] = C_DOT;
+        CLASS_OF['"'] = C_QUOTE;
+        CLASS_OF['/'] = C_SLASH;
+        CLASS_OF['<'] = C_LT;
+        CLASS_OF['>'] = C_GT;
+        CLASS_OF['='] = C_EQ;
+        CLASS_OF['\n'] = C_NEWLINE;
+        CLASS_OF[' '] = C_BLANK;
+        CLASS_OF['\t'] = C_BLANK;
+        CLASS_OF['\r'] = C_BLANK;
+
+        punctuation(';', Token.SEMICOLON);
+        punctuation(',', Token.COMMA);
+        punctuation('[', Token.OPENBRACKETS);
+        punctuation(']', Token.CLOSEBRACKETS);
+        punctuation('{', Token.OPENCURLYBRACKETS);
+        punctuation('}', Token.CLOSECURLYBRACKETS);
+        punctuation('(', Token.OPENPARENTHESIS);
+        punctuation(')', Token.CLOSEPARENTHESIS);
+        punctuation('%', Token.MODULO);
+        punctuation('*', Token.MULTIPLICATION);
+        punctuation('-', Token.SUBTRACTION);
+        punctuation('+', Token.ADDITION);
+
+        Arrays.fill(NEXT, DEAD);
+
+        edge(START, C_LETTER, IDENT);
+        edge(START, C_DIGIT, INT);
+        edge(START, C_DOT, DOT);
+        edge(START, C_QUOTE, STRING);
+        edge(START, C_SLASH, SLASH);
+        edge(START, C_LT, LT);
+        edge(START, C_GT, GT);
+        edge(START, C_EQ, ASSIGN);
+        edge(START, C_NEWLINE, BLANK);
+        edge(START, C_BLANK, BLANK);
+        edge(START, C_PUNCT, PUNCT);
+
+        edge(IDENT, C_LETTER, IDENT);
+        edge(IDENT, C_IDPART, IDENT);
+        edge(IDENT, C_DIGIT, IDENT);
+
+        edge(INT, C_DIGIT, INT);
+        edge(INT, C_DOT, INT_DOT);
+        edge(INT_DOT, C_DIGIT, REAL);
+        edge(REAL, C_DIGIT, REAL);
+        edge(DOT, C_DIGIT, REAL); // ".5"
+
+        // strings have no escape sequences and can span multiple lines
+        for (int c = 0; c < CLASSES; c++)
+            edge(STRING, c, STRING);
+        edge(STRING, C_QUOTE, STRING_END);
+
+        edge(SLASH, C_SLASH, COMMENT);
+        for (int c = 0; c < CLASSES; c++)
+            edge(COMMENT, c, COMMENT);
+        NEXT[COMMENT * CLASSES + C_NEWLINE] = DEAD;
+
+        edge(LT, C_EQ, LEQ);
+        edge(LT, C_GT, DIFF);
+        edge(GT, C_EQ, GEQ);
+        edge(ASSIGN, C_EQ, EQUAL);
+
+        edge(BLANK, C_BLANK, BLANK);
+        edge(BLANK, C_NEWLINE, BLANK);
+
+        ACCEPT[IDENT] = Token.IDENTIFIER;
+        ACCEPT[INT] = Token.INT;
+        ACCEPT[INT_DOT] = Token.REAL;
+        ACCEPT[REAL] = Token.REAL;
+        ACCEPT[DOT] = Token.DOT;
+        ACCEPT[STRING] = Token.STRING; // unterminated, the parser reports it
+        ACCEPT[STRING_END] = Token.STRING;
+        ACCEPT[SLASH] = Token.DIVISION;
+        ACCEPT[COMMENT] = Token.COMMENT;
+        ACCEPT[LT] = Token.LOWER;
+        ACCEPT[LEQ] = Token.LEQ;
+        ACCEPT[DIFF] = Token.DIFFERENT;
+        ACCEPT[GT] = Token.GREATER;
+        ACCEPT[GEQ] = Token.GEQ;
+        ACCEPT[ASSIGN] = Token.ASSIGNMENT;
+        ACCEPT[EQUAL] = Token.EQUAL;
+        ACCEPT[BLANK] = Token.SEPARATOR;
+    }
+
+    private DFA() {
+    }
+
+    private static void punctuation(char c, Token token) {
+        CLASS_OF[c] = C_PUNCT;
+        PUNCTUATION[c] = token;
+    }
+
+    private static void edge(int from, int cls, int to) {
+        NEXT[from * CLASSES + cls] = (byte) to;
+    }
+
+    /**
+     * Gets the character class of any char (non ASCII chars can only be part of identifiers).
+     *
+     * @param c a char of the source.
+     * @return one of the C_* classes.
+     */
+    static int classOf(char c) {
+        if (c < 128)
+            return CLASS_OF[c];
+        if (Character.isJavaIdentifierStart(c))
+            return C_LETTER;
+        return Character.isJavaIdentifierPart(c) ? C_IDPART : C_OTHER;
+    }
+
+    /**
+     * Gets the character class of a code point decoded from UTF-8 (like the chars of the UTF-16 source, code points
+     * outside the BMP can't be part of a token).
+     *
+     * @param codePoint a code point of the source (-1 if malformed).
+     * @return one of the C_* classes.
+     */
+    static int classOf(int codePoint) {
+        if (codePoint < 0 || codePoint > Character.MAX_VALUE)
+            return C_OTHER;
+        return classOf((char) codePoint);
+    }
+}
@@ -0,0 +1,99 @@
+package compiler.Lexer;
+
+import compiler.Exceptions.LexerException;
+
+/**
+ * Updates the tokens of a source after an edit, for editors that recompile on every change.
+ * Lexing restarts at the end of the last token before the edit and stops as soon as a new token starts where an old
+ * token after the edit started: from there on, the old tokens are kept. The buffer is updated in place: its source and
+ * its tokens are gap buffers moved to the edit, and the starts of the tokens after the edit are shifted when read (see
+ * TokenBuffer). Only the relexed tokens and the chars and tokens between this edit and the previous one are copied, so
+ * the work is proportional to the size of the edit plus its distance from the previous one, not to the source length.
+ */
+public final class IncrementalLexer {
+    private IncrementalLexer() {
+    }
+
+    /**
+     * Applies an edit to a fully lexed source.
+     *
+     * @param tokens        the tokens of the source before the edit (not a ring buffer), updated in place.
+     * @param offset        where the edit starts (in chars, or bytes if the source was lexed as UTF-8).
+     * @param removedLength number of chars (or bytes) removed at the offset.
+     * @param inserted      text inserted at the offset.
+     * @return the tokens of the edited source (the same buffer).
+     * @throws LexerException if the edited part contains an invalid token (the buffer is then left unchanged).
+     */
+    public static TokenBuffer relex(TokenBuffer tokens, int offset, int removedLength, String inserted)
+            throws LexerException {
+        if (tokens.mask != -1)
+            throw new IllegalArgumentException("A ring buffer can't be relexed.");
+        int oldLength = tokens.sourceLength();
+        if (offset < 0 || removedLength < 0 || offset + removedLength > oldLength)
+            throw new IllegalArgumentException("The edit is outside of the source.");
+
+        // kept prefix: the tokens that end before the edit (the next char could extend the ones touching it)
+        int kept = 0;
+        int high = tokens.size;
+        while (kept < high) { // first token ending at or after the offset (the ends are sorted too)
+            int middle = (kept + high) >>> 1;
+            if (tokens.start(middle) + tokens.length(middle) < offset)
+                kept = middle + 1;
+            else
+                high = middle;
+        }
+        int restart = kept == 0 ? 0 : tokens.start(kept - 1) + tokens.length(kept - 1);
+
+        // edited source, the gap moved before the restart so that the rest of the source is contiguous
+        String removed = tokens.replace(offset, removedLength, inserted);
+        int delta = tokens.sourceLength() - oldLength;
+        int insertedEnd = offset + removedLength + delta;
+        tokens.moveGap(restart);
+        int gap = tokens.gapLength;
+
+        // lex the edited part until it joins an old token after the edit
+        TokenBuffer window = tokens.bytes != null ? new TokenBuffer(tokens.bytes, tokens.names, 16)
+                : new TokenBuffer(tokens.source, tokens.names, 16);
+        Lexer lexer = tokens.bytes != null ? new Lexer(tokens.bytes, tokens.bytes.length, restart + gap, tokens.names)
+                : new Lexer(tokens.source, tokens.source.length, restart + gap, tokens.names);
+        int join = tokens.size; // first old token kept after the relexed ones
+        try {
+            while (lexer.lex(window) != Token.EOF) {
+                int start = window.starts[window.size - 1] - gap;
+                if (start >= insertedEnd) {
+                    int old = find(tokens, kept, start - delta);
+                    if (old >= 0 && tokens.token(old) != Token.EOF) {
+                        window.size--; // same token as the old one
+                        join = old;
+                        break;
+                    }
+                }
+            }
+        } catch (LexerException e) {
+            tokens.replace(offset, insertedEnd - offset, removed);
+            throw new LexerException(e.getName(), e.getDescription(), e.getOffset() < 0 ? -1 : e.getOffset() - gap);
+        }
+
+        tokens.splice(kept, join, window, -gap, delta);
+        return tokens;
+    }
+
+    /**
+     * @return the index of the token (from the first one) starting at an offset, or -1.
+     */
+    private static int find(TokenBuffer tokens, int first, int start) {
+        int low = first;
+        int high = tokens.size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int s = tokens.start(middle);
+            if (s < start)
+                low = middle + 1;
+            else if (s > start)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,105 @@
+package compiler.Lexer;
+
+/**
+ * Perfect hash table of the keywords: the slot of a word only depends on its length and its first and last chars,
+ * and no two keywords share a slot. Checking if a complete identifier is a keyword costs a single probe and at
+ * most one comparison, without building a String.
+ */
+public final class Keywords {
+    private static final int MIN_LENGTH = 2;
+    private static final int MAX_LENGTH = 6;
+    private static final int SIZE = 64;
+
+    private static final String[] WORDS = new String[SIZE];
+    private static final Token[] TOKENS = new Token[SIZE];
+
+    static {
+        add("int", Token.INTTYPE);
+        add("real", Token.REALTYPE);
+        add("string", Token.STRINGTYPE);
+        add("bool", Token.BOOLTYPE);
+        add("void", Token.VOIDTYPE);
+        add("const", Token.CONST);
+        add("record", Token.RECORD);
+        add("var", Token.VAR);
+        add("val", Token.VAL);
+        add("proc", Token.PROC);
+        add("for", Token.FOR);
+        add("to", Token.TO);
+        add("by", Token.BY);
+        add("while", Token.WHILE);
+        add("if", Token.IF);
+        add("else", Token.ELSE);
+        add("return", Token.RETURN);
+        add("and", Token.AND);
+        add("or", Token.OR);
+        add("delete", Token.DELETE);
+        add("true", Token.BOOL);
+        add("false", Token.BOOL);
+    }
+
+    private Keywords() {
+    }
+
+    private static int slot(int first, int last, int length) {
+        return (first + last * 20 + length) & (SIZE - 1);
+    }
+
+    private static void add(String word, Token token) {
+        int slot = slot(word.charAt(0), word.charAt(word.length() - 1), word.length());
+        if (WORDS[slot] != null)
+            throw new IllegalStateException("Keywords '" + word + "' and '" + WORDS[slot] + "' collide.");
+        WORDS[slot] = word;
+        TOKENS[slot] = token;
+    }
+
+    /**
+     * @param chars  the source buffer.
+     * @param start  offset of the identifier.
+     * @param length number of chars.
+     * @return the token of the keyword, or null if the identifier isn't a keyword.
+     */
+    public static Token get(char[] chars, int start, int length) {
+        if (length < MIN_LENGTH || length > MAX_LENGTH)
+            return null;
+        int slot = slot(chars[start], chars[start + length - 1], length);
+        String word = WORDS[slot];
+        if (word == null || word.length() != length)
+            return null;
+        for (int i = 0; i < length; i++)
+            if (word.charAt(i) != chars[start + i])
+                return null;
+        return TOKENS[slot];
+    }
+
+    /**
+     * @param bytes  the UTF-8 source buffer.
+     * @param start  offset of the identifier.
+     * @param length number of bytes.
+     * @return the token of the keyword, or null if the identifier isn't a keyword.
+     */
+    public static Token get(byte[] bytes, int start, int length) {
+        if (length < MIN_LENGTH || length > MAX_LENGTH)
+            return null;
+        int slot = slot(bytes[start], bytes[start + length - 1], length);
+        String word = WORDS[slot];
+        if (word == null || word.length() != length)
+            return null;
+        for (int i = 0; i < length; i++)
+            if (word.charAt(i) != bytes[start + i])
+                return null;
+        return TOKENS[slot];
+    }
+
+    /**
+     * @param word any word.
+     * @return the token of the keyword, or null if the word isn't a keyword.
+     */
+    public static Token get(String word) {
+        int length = word.length();
+        if (length < MIN_LENGTH || length > MAX_LENGTH)
+            return null;
+        int slot = slot(word.charAt(0), word.charAt(length - 1), length);
+        return word.equals(WORDS[slot]) ? TOKENS[slot] : null;
+    }
+}
@@ -4,57 +4,174 @@ import compiler.Exceptions.LexerException;
 
 import java.text.ParseException;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
 
 /**
  * Lexer Buffer with symbol preview.
+ * Tokens are read through an index cursor, either from a fully lexed TokenBuffer or streamed from the Lexer into a
+ * small ring buffer (the lookahead plus a window of the last consumed tokens for getProgress()), so that the memory
+ * used while parsing doesn't grow with the length of the input.
  */
 public class LB {
-    Lexer lexer;
-    LinkedList<Symbol> symbols;
-    List<Symbol> progress;
+    /** Number of consumed tokens kept for getProgress(). */
+    public static final int PROGRESS_WINDOW = 64;
+    private static final int RING_CAPACITY = 2 * PROGRESS_WINDOW;
+
+    Lexer lexer; // null when all the tokens are already in the buffer
+    TokenBuffer tokens;
+    int cursor; // index of the next token
+    int end = -1; // index of the EOF token, once lexed
 
     public LB(Lexer lexer) {
         this.lexer = lexer;
-        symbols = new LinkedList<>();
-        progress = new LinkedList<>();
+    }
+
+    public LB(TokenBuffer tokens) {
+        this(tokens, 0);
+    }
+
+    /**
+     * Reads a fully lexed buffer from a given token (used to parse parts of a program independently).
+     *
+     * @param cursor index of the first token to read.
+     */
+    public LB(TokenBuffer tokens, int cursor) {
+        this.tokens = tokens;
+        this.cursor = cursor;
+        end = tokens.size() - 1;
+    }
+
+    /**
+     * @return the index of the next token in the buffer.
+     */
+    public int cursor() {
+        return cursor;
+    }
+
+    /**
+     * Moves the cursor of a fully lexed buffer.
+     *
+     * @param cursor index of the next token to read.
+     */
+    public void seek(int cursor) {
+        if (lexer != null)
+            throw new IllegalStateException("Can't seek in a streamed buffer.");
+        this.cursor = Math.min(cursor, end);
+    }
+
+    private TokenBuffer tokens() throws LexerException {
+        if (tokens == null)
+            tokens = lexer.ring(RING_CAPACITY);
+        return tokens;
+    }
+
+    /**
+     * Index of the token at the given distance from the cursor (the EOF token is repeated after the end).
+     */
+    private int index(int ahead) throws LexerException {
+        int i = cursor + ahead;
+        TokenBuffer buffer = tokens();
+        while (end < 0 && buffer.size() <= i)
+            if (lexer.lex(buffer) == Token.EOF)
+                end = buffer.size() - 1;
+        return end >= 0 ? Math.min(i, end) : i;
     }
 
     /**
      * Gets the next symbol and add it to the progress.
-     * 
+     *
      * @return the next Symbol.
      */
     public Symbol get() throws LexerException {
-        Symbol next = silentGet();
-        progress.add(next);
+        Symbol next = tokens().symbol(index(0));
+        advance();
         return next;
     }
 
     /**
-     * Gets the next symbol without adding it to the progress (used for checking values).
+     * Gets the token type of the next symbol and add it to the progress (no content is materialized).
      *
-     * @return
+     * @return the next token type.
      */
-    private Symbol silentGet() throws LexerException {
-        return symbols.isEmpty() ? lexer.getNextSymbol() : symbols.remove();
+    public Token getToken() throws LexerException {
+        Token next = tokens().token(index(0));
+        advance();
+        return next;
+    }
+
+    private void advance() {
+        if (cursor != end)
+            cursor++;
     }
 
     /**
      * Get the next symbol and check if the token type is right.
-     * 
+     *
      * @param token the token type of the next symbol.
      * @return the next symbol.
      * @throws ParseException if the types don't match.
      */
     public Symbol match(Token token) throws ParseException, LexerException {
-        return matchAny(new Token[] { token });
+        int offset = offset();
+        return new Symbol(token, matchContent(token), offset);
+    }
+
+    /**
+     * Get the content of the next symbol and check if the token type is right.
+     *
+     * @param token the token type of the next symbol.
+     * @return the content of the next symbol.
+     * @throws ParseException if the types don't match.
+     */
+    public String matchContent(Token token) throws ParseException, LexerException {
+        int i = index(0);
+        if (tokens.token(i) != token)
+            throw new ParseException("Expected a " + Arrays.toString(new Token[] { token }) + " token but got a "
+                    + tokens.token(i), tokens.start(i));
+
+        advance();
+        return tokens.content(i);
+    }
+
+    /**
+     * Get the value of the next string literal, without its quotes.
+     *
+     * @return the interned value of the literal.
+     * @throws ParseException if the next symbol isn't a (closed) string literal.
+     */
+    public String matchString() throws ParseException, LexerException {
+        int i = index(0);
+        matchContent(Token.STRING);
+        String value = tokens.name(i);
+        if (value == null)
+            throw new ParseException("A string should be serrounded by '\"' quotes.", tokens.start(i));
+        return value;
+    }
+
+    /**
+     * Get the value of the next int literal (already computed by the Lexer).
+     *
+     * @return the value of the literal.
+     * @throws ParseException if the next symbol isn't an int literal.
+     */
+    public int matchInt() throws ParseException, LexerException {
+        int i = index(0);
+        consume(Token.INT);
+        return tokens.value(i);
+    }
+
+    /**
+     * Get the value of the next real literal.
+     *
+     * @return the value of the literal.
+     * @throws ParseException if the next symbol isn't a real literal.
+     */
+    public double matchReal() throws ParseException, LexerException {
+        return Double.parseDouble(matchContent(Token.REAL));
     }
 
     /**
      * Get the next symbol and check if the token type matches any one of tokens.
-     * 
+     *
      * @param tokens an array of token types that the next symbol could be.
      * @return the next symbol.
      * @throws ParseException if the type don't match with any of the array.
@@ -64,30 +181,49 @@ public class LB {
 
         if (!Arrays.asList(tokens).contains(symbol.token()))
             throw new ParseException(
-                    "Expected a " + Arrays.toString(tokens) + " token but got a " + symbol.token(), 0);
+                    "Expected a " + Arrays.toString(tokens) + " token but got a " + symbol.token(), symbol.offset());
 
         return symbol;
     }
 
     /**
      * Consume the next symbol while checking its token type.
-     * 
+     *
      * @param token the token type of the next symbol.
      * @throws ParseException if the types don't match.
      */
     public void consume(Token token) throws ParseException, LexerException {
-        match(token);
+        int i = index(0);
+        Token next = tokens().token(i);
+        if (next != token)
+            throw new ParseException("Expected a " + Arrays.toString(new Token[] { token }) + " token but got a "
+                    + next, tokens.start(i));
+        advance();
+    }
+
+    /**
+     * Get the offset of the next symbol in the source, without consuming it.
+     *
+     * @return the start offset of the next symbol (see lines()).
+     */
+    public int offset() throws LexerException {
+        return tokens().start(index(0));
+    }
+
+    /**
+     * @return the line starts of the source, to locate the offsets given by offset() and the ParseExceptions.
+     */
+    public LineMap lines() throws LexerException {
+        return lexer != null ? lexer.lines() : tokens.lines();
     }
 
     /**
      * Get the next symbol without consuming it.
-     * 
+     *
      * @return the next symbol.
      */
     public Symbol peek() throws LexerException {
-        if (symbols.isEmpty())
-            symbols.add(lexer.getNextSymbol());
-        return symbols.peek();
+        return tokens().symbol(index(0));
     }
 
     /**
@@ -96,26 +232,42 @@ public class LB {
      * @return the 2nd next symbol.
      */
     public Symbol peek2() throws LexerException {
-        while (symbols.size() < 2)
-            symbols.add(lexer.getNextSymbol());
+        return tokens().symbol(index(1));
+    }
 
-        Symbol first = silentGet();
-        Symbol second = symbols.peek();
-        symbols.addFirst(first);
-        return second;
+    /**
+     * Get the token type of the next symbol without consuming it (no content is materialized).
+     *
+     * @return the next token type.
+     */
+    public Token peekToken() throws LexerException {
+        return tokens().token(index(0));
     }
 
     /**
-     * Produces a string with the code of the tokens that have already been read.
+     * Get the token type of the symbol after the next one without consuming it.
+     *
+     * @return the 2nd next token type.
+     */
+    public Token peek2Token() throws LexerException {
+        return tokens().token(index(1));
+    }
+
+    /**
+     * Produces a string with the code of the last tokens that have already been read (at most PROGRESS_WINDOW).
      *
      * @return a String of already parsed code.
      */
     public String getProgress() {
+        if (tokens == null)
+            return "";
+
         StringBuilder ret = new StringBuilder();
-        for (int i = 0; i < progress.size(); i++) {
-            if (i > 0)
+        int first = Math.max(tokens.first(), cursor - PROGRESS_WINDOW);
+        for (int i = first; i < cursor; i++) {
+            if (i > first)
                 ret.append(" ");
-            ret.append(progress.get(i).content());
+            ret.append(tokens.content(i));
         }
         return ret.toString();
     }
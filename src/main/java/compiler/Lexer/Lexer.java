@@ -1,52 +1,410 @@
 package compiler.Lexer;
 
 import compiler.Exceptions.LexerException;
+import compiler.Lexer.Tokens.IntToken;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
+/**
+ * Single pass lexer driven by the DFA tables: every char of the source is read exactly once.
+ * The source can also be lexed straight from its UTF-8 bytes: every token is ASCII, so only the non ASCII chars of
+ * identifiers are decoded (the ones inside string literals and comments are skipped byte by byte).
+ */
 public class Lexer {
+    private static final int PARALLEL_THRESHOLD = 1 << 20; // sources lexed in parallel by tokenize()
+    private static final int CHUNK_SIZE = 1 << 18;
+
     Reader input;
-    String content;
+    char[] buffer; // whole source, read on the first call
+    byte[] bytes; // whole UTF-8 source, instead of the chars
+    boolean owned; // whether the source array was allocated by the lexer (not the caller's)
+    int length;
+    int position;
+    int tokenStart; // start of the last scanned token
+    int tokenPayload; // NamePool id or int value of the last scanned token (-1 if none)
+    boolean tokenAscii; // whether the bytes of the last scanned token are all ASCII
+    final NamePool names;
+    private TokenBuffer comments; // spans of the skipped comments, if recorded
+    private LineMap lines; // built on the first call to lines()
 
     public Lexer(Reader input) {
         this.input = input;
-        content = "";
+        names = new NamePool();
+    }
+
+    /**
+     * Lexes a source that is already in memory (see SourceLoader). A heap buffer is scanned in place, without copy.
+     *
+     * @param source the whole source code.
+     */
+    public Lexer(CharBuffer source) {
+        if (source.hasArray() && source.arrayOffset() == 0 && source.position() == 0) {
+            buffer = source.array();
+            length = source.limit();
+        } else {
+            buffer = new char[source.remaining()];
+            source.duplicate().get(buffer);
+            owned = true;
+            length = buffer.length;
+        }
+        position = 0;
+        names = new NamePool();
+    }
+
+    /**
+     * Lexes a UTF-8 source without decoding it to chars (see SourceLoader). Offsets of the tokens count bytes.
+     * A heap buffer is scanned in place, without copy.
+     *
+     * @param source the whole source code, encoded in UTF-8.
+     */
+    public Lexer(ByteBuffer source) {
+        if (source.hasArray() && source.arrayOffset() == 0 && source.position() == 0) {
+            bytes = source.array();
+            length = source.limit();
+        } else {
+            bytes = new byte[source.remaining()];
+            source.duplicate().get(bytes);
+            owned = true;
+            length = bytes.length;
+        }
+        position = 0;
+        names = new NamePool();
+    }
+
+    /**
+     * Lexes a part of a source buffer (used by the ParallelLexer and the IncrementalLexer).
+     */
+    Lexer(char[] buffer, int length, int position, NamePool names) {
+        this.buffer = buffer;
+        this.length = length;
+        this.position = position;
+        this.names = names;
+    }
+
+    /**
+     * Lexes a part of a UTF-8 source buffer (used by the ParallelLexer and the IncrementalLexer).
+     */
+    Lexer(byte[] bytes, int length, int position, NamePool names) {
+        this.bytes = bytes;
+        this.length = length;
+        this.position = position;
+        this.names = names;
     }
 
     public Symbol getNextSymbol() throws LexerException {
-        boolean alreadyRead = false;
-        Symbol bestMatch = null;
-        int bestLength = 0;
+        if (buffer == null && bytes == null)
+            load();
 
-        try {
-            while (input.ready()) {
-                if (alreadyRead || content.length() == 0) {
-                    int read = input.read();
-                    if (read == -1 && content.length() == 0)
-                        return new Symbol(Token.EOF, "<EOF>");
-                    content += (char) read;
-                }
+        Token token = next();
+        if (token == Token.EOF)
+            return new Symbol(Token.EOF, "<EOF>", tokenStart);
+        if (token == Token.IDENTIFIER)
+            return new Symbol(token, names.name(tokenPayload), tokenStart);
+        return new Symbol(token, text(tokenStart, position - tokenStart), tokenStart);
+    }
+
+    private String text(int start, int len) {
+        if (bytes != null)
+            return new String(bytes, start, len, StandardCharsets.UTF_8);
+        return new String(buffer, start, len);
+    }
+
+    private TokenBuffer newBuffer(int capacity) {
+        if (bytes != null)
+            return new TokenBuffer(bytes, names, capacity);
+        return new TokenBuffer(buffer, names, capacity);
+    }
+
+    /**
+     * @return the pool of the identifiers and string literals read by this lexer.
+     */
+    public NamePool names() {
+        return names;
+    }
+
+    /**
+     * @return the line starts of the source, to locate the offsets of the tokens (built on the first call).
+     */
+    public LineMap lines() throws LexerException {
+        if (buffer == null && bytes == null)
+            load();
+        if (lines == null)
+            lines = new LineMap(buffer, bytes, length);
+        return lines;
+    }
+
+    /**
+     * Records the spans of the comments skipped from now on (for tools that need them, see comments()).
+     */
+    public void recordComments() throws LexerException {
+        if (buffer == null && bytes == null)
+            load();
+        if (comments == null)
+            comments = newBuffer(16);
+    }
+
+    /**
+     * @return the COMMENT tokens skipped since recordComments() was called, or null if they aren't recorded.
+     */
+    public TokenBuffer comments() {
+        return comments;
+    }
+
+    /**
+     * Lexes the rest of the source into a TokenBuffer, ending with an EOF token.
+     * Large sources are lexed in parallel (see ParallelLexer) unless comments are recorded.
+     *
+     * @return the tokens, pointing into the source buffer.
+     */
+    public TokenBuffer tokenize() throws LexerException {
+        if (buffer == null && bytes == null)
+            load();
+
+        if (position == 0 && comments == null && length >= PARALLEL_THRESHOLD) {
+            position = length;
+            TokenBuffer tokens = buffer != null ? ParallelLexer.tokenize(buffer, length, names, CHUNK_SIZE)
+                    : ParallelLexer.tokenize(bytes, length, names, CHUNK_SIZE);
+            tokens.owned = owned;
+            return tokens;
+        }
+
+        TokenBuffer tokens = newBuffer((length - position) / 4);
+        tokens.owned = owned;
+        Token token;
+        do {
+            token = lex(tokens);
+        } while (token != Token.EOF);
+        return tokens;
+    }
+
+    /**
+     * Creates an empty ring buffer over the source, to be filled token by token with lex().
+     *
+     * @param capacity number of tokens kept by the ring.
+     * @return the ring buffer.
+     */
+    public TokenBuffer ring(int capacity) throws LexerException {
+        if (buffer == null && bytes == null)
+            load();
+        return TokenBuffer.ring(buffer, bytes, names, capacity);
+    }
+
+    /**
+     * Lexes the next token into a buffer.
+     *
+     * @param tokens a buffer over the source of this lexer.
+     * @return the token type added.
+     */
+    public Token lex(TokenBuffer tokens) throws LexerException {
+        Token token = next();
+        tokens.add(token, tokenStart, position - tokenStart, tokenPayload);
+        return token;
+    }
+
+    /**
+     * Lexes the tokens that start before an offset into a buffer (the last one can end after it, and the EOF token
+     * is added if the source ends before the next token).
+     *
+     * @param tokens a buffer over the source of this lexer.
+     * @param end    offset where to stop.
+     * @return the start of the first token not added, or the length of the source if the EOF was added.
+     */
+    int lexUntil(TokenBuffer tokens, int end) throws LexerException {
+        while (true) {
+            Token token = next();
+            if (token == Token.EOF) {
+                tokens.add(token, tokenStart, 0, -1);
+                return length;
+            }
+            if (tokenStart >= end)
+                return tokenStart;
+            tokens.add(token, tokenStart, position - tokenStart, tokenPayload);
+        }
+    }
+
+    /**
+     * Scans the next token, skipping separators and comments. Its chars are buffer[tokenStart..position[, the
+     * names of identifiers and string literals are interned and int literals are evaluated (tokenPayload).
+     *
+     * @return the token type (identifiers already checked against the keywords).
+     */
+    private Token next() throws LexerException {
+        Token token;
+        do {
+            if (position < length && TriviaScanner.isBlank(charAt(position)))
+                position = bytes == null ? TriviaScanner.INSTANCE.skipBlanks(buffer, position, length)
+                        : TriviaScanner.INSTANCE.skipBlanks(bytes, position, length);
+
+            tokenStart = position;
+            tokenPayload = -1;
+            if (position >= length)
+                return Token.EOF;
+
+            if (charAt(position) == '/' && position + 1 < length && charAt(position + 1) == '/') {
+                position = bytes == null ? TriviaScanner.INSTANCE.lineEnd(buffer, position + 2, length)
+                        : TriviaScanner.INSTANCE.lineEnd(bytes, position + 2, length);
+                token = Token.COMMENT;
+            } else
+                token = bytes == null ? scan() : scanBytes();
+            if (token == Token.COMMENT && comments != null)
+                comments.add(token, tokenStart, position - tokenStart, -1);
+        } while (token == Token.SEPARATOR || token == Token.COMMENT); // skip the trivia
+
+        int len = position - tokenStart;
+        if (token == Token.IDENTIFIER) {
+            Token keyword = bytes == null ? Keywords.get(buffer, tokenStart, len)
+                    : Keywords.get(bytes, tokenStart, len);
+            if (keyword != null)
+                return keyword;
+            tokenPayload = intern(tokenStart, len);
+        } else if (token == Token.INT) {
+            tokenPayload = bytes == null ? IntToken.value(buffer, tokenStart, len)
+                    : IntToken.value(bytes, tokenStart, len);
+            if (tokenPayload < 0)
+                throw new LexerException("Integer overflow", "The int literal " + text(tokenStart, len)
+                        + " (at offset " + tokenStart + ") is too large.", tokenStart);
+        } else if (token == Token.STRING && len >= 2 && charAt(position - 1) == '"')
+            tokenPayload = intern(tokenStart + 1, len - 2);
+        return token;
+    }
+
+    private int charAt(int offset) {
+        return bytes == null ? buffer[offset] : bytes[offset];
+    }
+
+    private int intern(int start, int len) {
+        if (bytes == null)
+            return names.intern(buffer, start, len);
+        if (tokenAscii)
+            return names.intern(bytes, start, len);
+        return names.intern(text(start, len));
+    }
+
+    /**
+     * Runs the DFA from the current position until no transition is possible (longest match).
+     *
+     * @return the token of the last reached state.
+     * @throws LexerException if no token starts with the current char.
+     */
+    private Token scan() throws LexerException {
+        final char[] buf = buffer;
+        final int end = length;
+        int pos = position;
+        int state = DFA.START;
+
+        while (pos < end) {
+            int next = DFA.NEXT[state * DFA.CLASSES + DFA.classOf(buf[pos])];
+            if (next == DFA.DEAD)
+                break;
+            state = next;
+            pos++;
+        }
 
-                Token found = Symbol.findMatch(content);
-                if (found == null) {
-                    content = content.substring(bestLength);
-                    break; // longest match
+        if (state == DFA.START)
+            throw new LexerException("Unexpected character",
+                    "No token can start with '" + buf[position] + "' (at offset " + position + ").", position);
+
+        Token token = state == DFA.PUNCT ? DFA.PUNCTUATION[buf[position]] : DFA.ACCEPT[state];
+        position = pos;
+        return token;
+    }
+
+    /**
+     * Runs the DFA over the UTF-8 bytes from the current position (see scan()). ASCII bytes are classified with
+     * a table lookup, multi byte chars are only decoded outside of strings and comments.
+     *
+     * @return the token of the last reached state.
+     * @throws LexerException if no token starts with the current char.
+     */
+    private Token scanBytes() throws LexerException {
+        final byte[] buf = bytes;
+        final int end = length;
+        int pos = position;
+        int state = DFA.START;
+        boolean ascii = true;
+
+        while (pos < end) {
+            int b = buf[pos];
+            int cls;
+            int size = 1;
+            if (b >= 0)
+                cls = DFA.CLASS_OF[b];
+            else {
+                ascii = false;
+                if (state == DFA.STRING || state == DFA.COMMENT)
+                    cls = DFA.C_OTHER; // the bytes of a multi byte char are never quotes or newlines
+                else {
+                    size = utf8Length(b);
+                    cls = size == 1 || pos + size > end ? DFA.C_OTHER : DFA.classOf(decode(buf, pos, size));
                 }
-                alreadyRead = true;
-                bestMatch = new Symbol(found, content);
-                bestLength++;
             }
-        } catch (IOException e) {
-            System.err.println("Error in lexer: " + e.getMessage());
-            return bestMatch;
+
+            int next = DFA.NEXT[state * DFA.CLASSES + cls];
+            if (next == DFA.DEAD)
+                break;
+            state = next;
+            pos += size;
         }
 
-        // if the match is a separator, get next token
-        if (bestMatch != null && (bestMatch.token() == Token.SEPARATOR || bestMatch.token() == Token.COMMENT))
-            return getNextSymbol();
+        if (state == DFA.START)
+            throw new LexerException("Unexpected character", "No token can start with '"
+                    + text(position, Math.min(utf8Length(buf[position]), end - position)) + "' (at offset "
+                    + position + ").", position);
+
+        Token token = state == DFA.PUNCT ? DFA.PUNCTUATION[buf[position]] : DFA.ACCEPT[state];
+        position = pos;
+        tokenAscii = ascii;
+        return token;
+    }
 
-        // return bestMatch if it isn't null, else send the EOF symbol.
-        return bestMatch != null ? bestMatch : new Symbol(Token.EOF, "<EOF>");
+    /**
+     * @return the number of bytes of the UTF-8 sequence starting with a byte (1 if it can't start one).
+     */
+    private static int utf8Length(int b) {
+        if ((b & 0xE0) == 0xC0)
+            return 2;
+        if ((b & 0xF0) == 0xE0)
+            return 3;
+        if ((b & 0xF8) == 0xF0)
+            return 4;
+        return 1;
+    }
+
+    /**
+     * @return the code point of a UTF-8 sequence, or -1 if it is malformed.
+     */
+    private static int decode(byte[] buf, int pos, int size) {
+        int codePoint = buf[pos] & (0x7F >> size);
+        for (int i = 1; i < size; i++) {
+            int b = buf[pos + i];
+            if ((b & 0xC0) != 0x80)
+                return -1;
+            codePoint = (codePoint << 6) | (b & 0x3F);
+        }
+        return codePoint;
+    }
+
+    private void load() throws LexerException {
+        char[] chars = new char[8192];
+        int size = 0;
+        try {
+            int read;
+            while ((read = input.read(chars, size, chars.length - size)) != -1) {
+                size += read;
+                if (size == chars.length)
+                    chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+        } catch (IOException e) {
+            throw new LexerException("Input error", "Error while reading the source: " + e.getMessage());
+        }
+        buffer = chars;
+        owned = true;
+        length = size;
+        position = 0;
     }
 }
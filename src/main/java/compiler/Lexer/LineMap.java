@@ -0,0 +1,101 @@
+package compiler.Lexer;
+
+import java.util.Arrays;
+
+/**
+ * Line start offsets of a source buffer, used to turn the int offsets carried by the tokens, the AST nodes and the
+ * exceptions into a line and a column. It is only built when a position is first asked for (see Lexer.lines()), so
+ * a successful compilation never pays for it.
+ * Lines and columns start at 1. On a UTF-8 source, offsets count bytes but columns still count chars.
+ */
+public final class LineMap {
+    private final char[] chars;
+    private final byte[] bytes;
+    private final int[] starts; // offset of the first char of each line
+    private final int lines;
+
+    LineMap(char[] chars, byte[] bytes, int length) {
+        this.chars = chars;
+        this.bytes = bytes;
+
+        int[] starts = new int[16];
+        int count = 1; // starts[0] = 0
+        int pos = 0;
+        while (true) {
+            pos = chars != null ? TriviaScanner.INSTANCE.lineEnd(chars, pos, length)
+                    : TriviaScanner.INSTANCE.lineEnd(bytes, pos, length);
+            if (pos >= length)
+                break;
+            if (count == starts.length)
+                starts = Arrays.copyOf(starts, count * 2);
+            starts[count++] = ++pos;
+        }
+        this.starts = starts;
+        this.lines = count;
+    }
+
+    /**
+     * @param source the source buffer.
+     * @param length number of chars of the source.
+     */
+    public LineMap(char[] source, int length) {
+        this(source, null, length);
+    }
+
+    /**
+     * @param source the UTF-8 source buffer.
+     * @param length number of bytes of the source.
+     */
+    public LineMap(byte[] source, int length) {
+        this(null, source, length);
+    }
+
+    /**
+     * @return the number of lines of the source.
+     */
+    public int lines() {
+        return lines;
+    }
+
+    /**
+     * @param line a line number.
+     * @return the offset of the first char of the line.
+     */
+    public int lineStart(int line) {
+        return starts[line - 1];
+    }
+
+    /**
+     * @param offset an offset in the source.
+     * @return the line of the offset.
+     */
+    public int line(int offset) {
+        int i = Arrays.binarySearch(starts, 0, lines, Math.max(offset, 0));
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    /**
+     * @param offset an offset in the source.
+     * @return the column of the offset, in chars.
+     */
+    public int column(int offset) {
+        offset = Math.max(offset, 0);
+        int start = lineStart(line(offset));
+        if (bytes == null)
+            return offset - start + 1;
+
+        int column = 1;
+        for (int i = start; i < offset; i++)
+            if ((bytes[i] & 0xC0) != 0x80) // not a continuation byte
+                column++;
+        return column;
+    }
+
+    /**
+     * @param offset an offset in the source.
+     * @return "line:column".
+     */
+    public String format(int offset) {
+        return line(offset) + ":" + column(offset);
+    }
+}
@@ -0,0 +1,154 @@
+package compiler.Lexer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interning pool of the identifiers and string literals of a compilation, filled by the Lexer.
+ * Every distinct name gets a dense id and one String, so no String is built twice for the same name and its hash code
+ * is computed only once. The Strings aren't interned by the JVM: they live as long as the compilation, and are only
+ * equal (not identical) to the literal names of the built-in functions and to the names of other compilations. The
+ * SymbolTable and the Scopes compare names with equals(), as keys of a HashMap.
+ */
+public class NamePool {
+    private String[] names;
+    private int[] hashes;
+    private int[] slots; // open addressing table of id + 1 (0 is empty)
+    private int size;
+
+    public NamePool() {
+        names = new String[64];
+        hashes = new int[64];
+        slots = new int[128];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param id an id given by this pool.
+     * @return the canonical String of the name.
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Interns a range of chars without building a String when the name is already known.
+     *
+     * @param chars  the source buffer.
+     * @param start  offset of the first char.
+     * @param length number of chars.
+     * @return the id of the name.
+     */
+    public int intern(char[] chars, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++)
+            hash = 31 * hash + chars[i];
+
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && equals(names[id], chars, start, length))
+                return id;
+            slot = (slot + 1) & mask;
+        }
+        return add(new String(chars, start, length), hash, slot);
+    }
+
+    /**
+     * Interns a range of ASCII bytes without building a String when the name is already known.
+     *
+     * @param bytes  the source buffer.
+     * @param start  offset of the first byte.
+     * @param length number of bytes (all ASCII).
+     * @return the id of the name.
+     */
+    public int intern(byte[] bytes, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++)
+            hash = 31 * hash + bytes[i];
+
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && equals(names[id], bytes, start, length))
+                return id;
+            slot = (slot + 1) & mask;
+        }
+        return add(new String(bytes, start, length, StandardCharsets.ISO_8859_1), hash, slot);
+    }
+
+    /**
+     * Interns a name given as a String.
+     *
+     * @param name any name.
+     * @return the id of the name.
+     */
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && names[id].equals(name))
+                return id;
+            slot = (slot + 1) & mask;
+        }
+        return add(name, hash, slot);
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+
+        if (size * 2 > slots.length)
+            rehash();
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(String name, byte[] bytes, int start, int length) {
+        if (name.length() != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (name.charAt(i) != bytes[start + i])
+                return false;
+        return true;
+    }
+
+    private static boolean equals(String name, char[] chars, int start, int length) {
+        if (name.length() != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (name.charAt(i) != chars[start + i])
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,180 @@
+package compiler.Lexer;
+
+import compiler.Exceptions.LexerException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Lexes large sources in parallel: the source is split in chunks at newlines, and each chunk is lexed on a ForkJoin
+ * worker as if it started outside of any token. Only string literals can span a newline, so a chunk is wrong only
+ * when a string crosses its start. While merging, every chunk is checked against the position where the previous
+ * chunk stopped, and the few wrong chunks are lexed again from there.
+ * The result is the same token sequence as a sequential Lexer.tokenize(). A UTF-8 source is split the same way: a
+ * newline byte is never part of a multi-byte char.
+ */
+public final class ParallelLexer {
+    private ParallelLexer() {
+    }
+
+    /** The chars or the UTF-8 bytes of the source. */
+    private static final class Source {
+        final char[] chars;
+        final byte[] bytes;
+        final int length;
+
+        Source(char[] chars, byte[] bytes, int length) {
+            this.chars = chars;
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        boolean newlineAt(int i) {
+            return chars != null ? chars[i] == '\n' : bytes[i] == '\n';
+        }
+
+        Lexer lexer(int from, NamePool names) {
+            return chars != null ? new Lexer(chars, length, from, names) : new Lexer(bytes, length, from, names);
+        }
+
+        TokenBuffer buffer(NamePool names, int capacity) {
+            return chars != null ? new TokenBuffer(chars, names, capacity) : new TokenBuffer(bytes, names, capacity);
+        }
+    }
+
+    /** Tokens of one chunk, with their own NamePool. */
+    private static final class Chunk {
+        final int end;
+        TokenBuffer tokens;
+        int resync; // start of the first token after the chunk (or length once the EOF is reached)
+        LexerException error;
+
+        Chunk(int end) {
+            this.end = end;
+        }
+    }
+
+    /**
+     * Lexes a whole source.
+     *
+     * @param source    the source buffer.
+     * @param length    number of chars of the source.
+     * @param names     the pool that receives the names of the merged tokens.
+     * @param chunkSize approximate number of chars lexed by each task.
+     * @return the tokens of the source, ending with an EOF token.
+     * @throws LexerException if the source contains an invalid token.
+     */
+    public static TokenBuffer tokenize(char[] source, int length, NamePool names, int chunkSize)
+            throws LexerException {
+        return tokenize(new Source(source, null, length), names, chunkSize);
+    }
+
+    /**
+     * Lexes a whole UTF-8 source (the offsets of the tokens count bytes, see Lexer(ByteBuffer)).
+     *
+     * @param source    the source buffer.
+     * @param length    number of bytes of the source.
+     * @param names     the pool that receives the names of the merged tokens.
+     * @param chunkSize approximate number of bytes lexed by each task.
+     * @return the tokens of the source, ending with an EOF token.
+     * @throws LexerException if the source contains an invalid token.
+     */
+    public static TokenBuffer tokenize(byte[] source, int length, NamePool names, int chunkSize)
+            throws LexerException {
+        return tokenize(new Source(null, source, length), names, chunkSize);
+    }
+
+    private static TokenBuffer tokenize(Source source, NamePool names, int chunkSize) throws LexerException {
+        int length = source.length;
+
+        // chunk boundaries, right after a newline
+        List<Integer> starts = new ArrayList<>();
+        int start = 0;
+        while (start < length) {
+            starts.add(start);
+            int end = Math.min(length, start + Math.max(chunkSize, 1));
+            while (end < length && !source.newlineAt(end - 1))
+                end++;
+            start = end;
+        }
+        if (starts.isEmpty())
+            starts.add(0);
+
+        // speculative lexing
+        int count = starts.size();
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int from = starts.get(i);
+            int to = i + 1 < count ? starts.get(i + 1) : length;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> lex(source, from, to)));
+        }
+
+        // merge, checking that every chunk starts where the previous one stopped
+        TokenBuffer merged = source.buffer(names, length / 4);
+        int expected = 0;
+        for (int i = 0; i < count; i++) {
+            Chunk chunk = tasks.get(i).join();
+            if (i > 0 && expected >= chunk.end)
+                continue; // covered by a string of a previous chunk
+
+            int first = chunk.error != null ? -1 : i == 0 ? 0 : find(chunk, expected);
+            if (first < 0 && (chunk.error != null || chunk.resync != expected)) {
+                chunk = lex(source, expected, chunk.end);
+                if (chunk.error != null)
+                    throw chunk.error;
+                first = 0;
+            }
+            if (first >= 0)
+                append(merged, chunk, first);
+            expected = chunk.resync;
+        }
+        return merged;
+    }
+
+    /**
+     * Lexes the tokens starting in [from, to[ (the last one can end after to).
+     */
+    private static Chunk lex(Source source, int from, int to) {
+        Chunk chunk = new Chunk(to);
+        Lexer lexer = source.lexer(from, new NamePool());
+        chunk.tokens = source.buffer(lexer.names, (to - from) / 4);
+        try {
+            chunk.resync = lexer.lexUntil(chunk.tokens, to);
+        } catch (LexerException e) {
+            chunk.error = e;
+        }
+        return chunk;
+    }
+
+    /**
+     * @return the index of the token of the chunk that starts at the given offset, or -1.
+     */
+    private static int find(Chunk chunk, int start) {
+        TokenBuffer tokens = chunk.tokens;
+        int i = Arrays.binarySearch(tokens.starts, 0, tokens.size, start);
+        return i < 0 ? -1 : i;
+    }
+
+    private static void append(TokenBuffer merged, Chunk chunk, int first) {
+        TokenBuffer tokens = chunk.tokens;
+        NamePool pool = tokens.names;
+        int[] ids = new int[pool.size()];
+        Arrays.fill(ids, -1);
+
+        byte identifier = (byte) Token.IDENTIFIER.ordinal();
+        byte string = (byte) Token.STRING.ordinal();
+        for (int i = first; i < tokens.size; i++) {
+            int payload = tokens.payloads[i];
+            byte kind = tokens.kinds[i];
+            if ((kind == identifier || kind == string) && payload >= 0) {
+                if (ids[payload] < 0)
+                    ids[payload] = merged.names.intern(pool.name(payload));
+                payload = ids[payload];
+            }
+            merged.add(tokens.token(i), tokens.starts[i], tokens.lengths[i], payload);
+        }
+    }
+}
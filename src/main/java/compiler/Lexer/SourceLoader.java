@@ -0,0 +1,64 @@
+package compiler.Lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads source files for the Lexer.
+ * The file is either memory-mapped and decoded straight into one CharBuffer, or read as raw UTF-8 bytes without any
+ * decoding. The Lexer then scans the buffer in place: it is the only copy of the source living on the heap.
+ */
+public final class SourceLoader {
+    private SourceLoader() {
+    }
+
+    /**
+     * Maps a UTF-8 source file and decodes it (malformed bytes are replaced, not rejected).
+     *
+     * @param path the source file.
+     * @return a heap CharBuffer holding the whole source.
+     * @throws IOException if the file can't be read or is larger than 2GB.
+     */
+    public static CharBuffer load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Source file too large (" + size + " bytes).");
+
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            return decoder.decode(bytes);
+        }
+    }
+
+    /**
+     * Reads a source file as raw bytes, to be lexed as UTF-8 without decoding.
+     *
+     * @param path the source file.
+     * @return a heap ByteBuffer holding the whole file.
+     * @throws IOException if the file can't be read or is larger than 2GB.
+     */
+    public static ByteBuffer loadBytes(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Source file too large (" + size + " bytes).");
+
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining())
+                if (channel.read(bytes) == -1)
+                    break;
+            return bytes.flip();
+        }
+    }
+}
@@ -2,7 +2,14 @@ package compiler.Lexer;
 
 import compiler.Lexer.Tokens.*;
 
-public record Symbol(Token token, String content) {
+/**
+ * A token and its content. The offset of the token in the source (see LineMap) isn't part of its identity.
+ */
+public record Symbol(Token token, String content, int offset) {
+    public Symbol(Token token, String content) {
+        this(token, content, -1);
+    }
+
     /**
      * Tries to match the code with each symbol class (in a defined order) and
      * returns the first matching symbol (by returning a TokenType) or null if no
@@ -55,50 +62,11 @@ public record Symbol(Token token, String content) {
                 return Token.ADDITION;
             case "=":
                 return Token.ASSIGNMENT;
-            case "int":
-                return Token.INTTYPE;
-            case "real":
-                return Token.REALTYPE;
-            case "string":
-                return Token.STRINGTYPE;
-            case "bool":
-                return Token.BOOLTYPE;
-            case "void":
-                return Token.VOIDTYPE;
-            case "const":
-                return Token.CONST;
-            case "record":
-                return Token.RECORD;
-            case "var":
-                return Token.VAR;
-            case "val":
-                return Token.VAL;
-            case "proc":
-                return Token.PROC;
-            case "for":
-                return Token.FOR;
-            case "to":
-                return Token.TO;
-            case "by":
-                return Token.BY;
-            case "while":
-                return Token.WHILE;
-            case "if":
-                return Token.IF;
-            case "else":
-                return Token.ELSE;
-            case "return":
-                return Token.RETURN;
-            case "and":
-                return Token.AND;
-            case "or":
-                return Token.OR;
-            case "delete":
-                return Token.DELETE;
         }
 
-        if (code.equals("true") | code.equals("false"))
-            return Token.BOOL;
+        Token keyword = Keywords.get(code); // true and false included
+        if (keyword != null)
+            return keyword;
         else if (StringToken.isTokenMatched(code))
             return Token.STRING;
         else if (IntToken.isTokenMatched(code))
@@ -128,4 +96,9 @@ public record Symbol(Token token, String content) {
         Symbol that = (Symbol) o;
         return this.content.equals(that.content) && this.token == that.token;
     }
+
+    @Override
+    public int hashCode() {
+        return 31 * token.hashCode() + content.hashCode();
+    }
 }
@@ -0,0 +1,361 @@
+package compiler.Lexer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact output of the Lexer: one entry per token, stored as parallel arrays (kind, start offset, length)
+ * pointing into the source buffer. The content of a token is only turned into a String when asked for.
+ * Identifiers and string literals also carry the id of their name in the NamePool of the Lexer, and int literals
+ * carry their value.
+ * When the source was lexed as UTF-8 bytes, offsets and lengths count bytes instead of chars.
+ * A ring buffer (see ring()) has a fixed power of two capacity and only keeps the last tokens added, but its tokens
+ * are still accessed by their absolute index.
+ * A buffer updated by the IncrementalLexer keeps its source and its tokens as gap buffers, both gaps being where the
+ * last edit was lexed. The starts of the tokens after the token gap are shifted when read, instead of rewritten.
+ */
+public class TokenBuffer {
+    private static final Token[] TOKENS = Token.values();
+
+    char[] source;
+    byte[] bytes; // UTF-8 source, instead of the chars
+    final NamePool names;
+    byte[] kinds;
+    int[] starts;
+    int[] lengths;
+    int[] payloads; // NamePool id (identifiers, strings), value (ints) or -1
+    int size; // number of tokens added
+    final int mask; // index mask of a ring buffer, -1 if the buffer grows
+    boolean owned; // whether the source array can be edited in place (else it is copied by the first edit)
+    int gapStart = Integer.MAX_VALUE; // the source from this offset on is stored gapLength chars (or bytes) further
+    int gapLength;
+    int tokenGap = Integer.MAX_VALUE; // the tokens from this index on are stored tokenGapLength slots further
+    int tokenGapLength;
+    int shift; // the starts of the tokens after the token gap are stored shift less
+    private LineMap lines; // built on the first call to lines()
+
+    public TokenBuffer(char[] source, NamePool names, int capacity) {
+        this(source, null, names, Math.max(capacity, 16), -1);
+    }
+
+    public TokenBuffer(byte[] bytes, NamePool names, int capacity) {
+        this(null, bytes, names, Math.max(capacity, 16), -1);
+    }
+
+    private TokenBuffer(char[] source, byte[] bytes, NamePool names, int capacity, int mask) {
+        this.source = source;
+        this.bytes = bytes;
+        this.names = names;
+        this.mask = mask;
+        kinds = new byte[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        payloads = new int[capacity];
+    }
+
+    /**
+     * Creates a ring buffer that keeps only the last tokens added.
+     *
+     * @param capacity number of tokens kept, rounded up to a power of two.
+     */
+    public static TokenBuffer ring(char[] source, NamePool names, int capacity) {
+        return ring(source, null, names, capacity);
+    }
+
+    static TokenBuffer ring(char[] source, byte[] bytes, NamePool names, int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        return new TokenBuffer(source, bytes, names, size, size - 1);
+    }
+
+    /**
+     * @return the absolute index of the oldest token still in the buffer.
+     */
+    public int first() {
+        return mask == -1 ? 0 : Math.max(0, size - kinds.length);
+    }
+
+    /**
+     * Appends a token.
+     *
+     * @param token   the token type.
+     * @param start   offset of its first char in the source.
+     * @param length  number of chars.
+     * @param payload id of the name of the token in the NamePool, value of an int literal, or -1.
+     */
+    public void add(Token token, int start, int length, int payload) {
+        if (size + tokenGapLength == kinds.length && mask == -1) {
+            int capacity = kinds.length * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+        }
+        int slot = slot(size);
+        kinds[slot] = (byte) token.ordinal();
+        starts[slot] = size < tokenGap ? start : start - shift;
+        lengths[slot] = length;
+        payloads[slot] = payload;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the position of a token in the arrays.
+     */
+    private int slot(int i) {
+        return i < tokenGap ? i & mask : i + tokenGapLength;
+    }
+
+    public Token token(int i) {
+        return TOKENS[kinds[slot(i)]];
+    }
+
+    public int start(int i) {
+        return i < tokenGap ? starts[i & mask] : starts[i + tokenGapLength] + shift;
+    }
+
+    public int length(int i) {
+        return lengths[slot(i)];
+    }
+
+    /**
+     * After an incremental edit, the array has a gap where the edit was lexed (lines() moves it to the end).
+     *
+     * @return the source chars, or null if the tokens were lexed from bytes.
+     */
+    public char[] source() {
+        return source;
+    }
+
+    /**
+     * After an incremental edit, the array has a gap where the edit was lexed (lines() moves it to the end).
+     *
+     * @return the UTF-8 source, or null if the tokens were lexed from chars.
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public NamePool names() {
+        return names;
+    }
+
+    /**
+     * Gets the interned name of a token: the identifier, or the value of a string literal without its quotes.
+     *
+     * @param i index of the token.
+     * @return the canonical String, or null if the token has no name.
+     */
+    public String name(int i) {
+        int slot = slot(i);
+        if (kinds[slot] != Token.IDENTIFIER.ordinal() && kinds[slot] != Token.STRING.ordinal())
+            return null;
+        return payloads[slot] < 0 ? null : names.name(payloads[slot]);
+    }
+
+    /**
+     * @param i index of an int literal.
+     * @return its value, computed by the Lexer.
+     */
+    public int value(int i) {
+        return payloads[slot(i)];
+    }
+
+    /**
+     * Materializes the content of a token.
+     *
+     * @param i index of the token.
+     * @return the chars of the token ("&lt;EOF&gt;" for the end of file, the canonical name for identifiers).
+     */
+    public String content(int i) {
+        int slot = slot(i);
+        if (kinds[slot] == Token.EOF.ordinal())
+            return "<EOF>";
+        if (kinds[slot] == Token.IDENTIFIER.ordinal())
+            return names.name(payloads[slot]);
+        int start = start(i);
+        int length = lengths[slot];
+        if (start + length <= gapStart)
+            return text(start, length);
+        if (start >= gapStart)
+            return text(start + gapLength, length);
+        return text(start, gapStart - start) + text(gapStart + gapLength, start + length - gapStart);
+    }
+
+    private String text(int physicalStart, int length) {
+        if (bytes != null)
+            return new String(bytes, physicalStart, length, StandardCharsets.UTF_8);
+        return new String(source, physicalStart, length);
+    }
+
+    public Symbol symbol(int i) {
+        return new Symbol(token(i), content(i), start(i));
+    }
+
+    /**
+     * @return the line starts of the source, to locate the start offsets of the tokens (built on the first call).
+     */
+    public LineMap lines() {
+        if (lines == null) {
+            int length = sourceLength();
+            moveGap(length); // contiguous
+            lines = source != null ? new LineMap(source, length) : new LineMap(bytes, length);
+        }
+        return lines;
+    }
+
+    // ------------------------------------ GAP BUFFERS ------------------------------------
+
+    private int capacity() {
+        return source != null ? source.length : bytes.length;
+    }
+
+    private Object array() {
+        return source != null ? source : bytes;
+    }
+
+    /**
+     * @return the length of the source, without the gap (the start of the EOF token).
+     */
+    int sourceLength() {
+        if (gapStart == Integer.MAX_VALUE) { // no edit yet: the gap is the free space after the source
+            gapStart = size > 0 && token(size - 1) == Token.EOF ? start(size - 1) : capacity();
+            gapLength = capacity() - gapStart;
+        }
+        return capacity() - gapLength;
+    }
+
+    /**
+     * Copies the source array before its first change if it belongs to the caller of the Lexer.
+     */
+    private void own() {
+        if (owned)
+            return;
+        if (source != null)
+            source = source.clone();
+        else
+            bytes = bytes.clone();
+        owned = true;
+    }
+
+    /**
+     * Moves the gap of the source to an offset, copying the chars (or bytes) between its old and new position.
+     */
+    void moveGap(int offset) {
+        sourceLength(); // opens the gap
+        if (offset == gapStart)
+            return;
+        own();
+        if (offset < gapStart)
+            System.arraycopy(array(), offset, array(), offset + gapLength, gapStart - offset);
+        else
+            System.arraycopy(array(), gapStart + gapLength, array(), gapStart, offset - gapStart);
+        gapStart = offset;
+    }
+
+    /**
+     * Replaces a range of the source (the tokens aren't updated), leaving the gap after the inserted text.
+     *
+     * @param offset        where the range starts (in chars, or bytes for a UTF-8 source).
+     * @param removedLength length of the range.
+     * @param inserted      text replacing the range.
+     * @return the text of the range.
+     */
+    String replace(int offset, int removedLength, String inserted) {
+        moveGap(offset);
+        own();
+        String removed = text(gapStart + gapLength, removedLength);
+        gapLength += removedLength;
+
+        byte[] utf8 = bytes != null ? inserted.getBytes(StandardCharsets.UTF_8) : null;
+        int length = utf8 != null ? utf8.length : inserted.length();
+        if (gapLength < length) { // grows the gap
+            int capacity = Math.max(capacity() * 2, capacity() - gapLength + length);
+            int tail = capacity() - gapStart - gapLength;
+            Object array = source != null ? new char[capacity] : new byte[capacity];
+            System.arraycopy(array(), 0, array, 0, gapStart);
+            System.arraycopy(array(), gapStart + gapLength, array, capacity - tail, tail);
+            if (source != null)
+                source = (char[]) array;
+            else
+                bytes = (byte[]) array;
+            gapLength = capacity - gapStart - tail;
+        }
+        if (utf8 != null)
+            System.arraycopy(utf8, 0, bytes, gapStart, length);
+        else
+            inserted.getChars(0, length, source, gapStart);
+        gapStart += length;
+        gapLength -= length;
+        lines = null;
+        return removed;
+    }
+
+    /**
+     * Replaces tokens with the ones of another buffer, leaving the token gap after them.
+     *
+     * @param from   the first token replaced.
+     * @param to     the end of the tokens replaced.
+     * @param tokens the new tokens.
+     * @param offset added to the starts of the new tokens.
+     * @param delta  added to the starts of the tokens after the replaced ones.
+     */
+    void splice(int from, int to, TokenBuffer tokens, int offset, int delta) {
+        moveTokenGap(to);
+        tokenGap = from; // the replaced tokens join the gap
+        tokenGapLength += to - from;
+        if (tokenGapLength < tokens.size) { // grows the gap
+            int capacity = Math.max(kinds.length * 2, size - (to - from) + tokens.size + 16);
+            int end = tokenGap + tokenGapLength, tail = kinds.length - end;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+            System.arraycopy(kinds, end, kinds, capacity - tail, tail);
+            System.arraycopy(starts, end, starts, capacity - tail, tail);
+            System.arraycopy(lengths, end, lengths, capacity - tail, tail);
+            System.arraycopy(payloads, end, payloads, capacity - tail, tail);
+            tokenGapLength = capacity - tokenGap - tail;
+        }
+
+        System.arraycopy(tokens.kinds, 0, kinds, tokenGap, tokens.size);
+        System.arraycopy(tokens.lengths, 0, lengths, tokenGap, tokens.size);
+        System.arraycopy(tokens.payloads, 0, payloads, tokenGap, tokens.size);
+        for (int i = 0; i < tokens.size; i++)
+            starts[tokenGap + i] = tokens.starts[i] + offset;
+        tokenGap += tokens.size;
+        tokenGapLength -= tokens.size;
+        size += tokens.size - (to - from);
+        shift += delta;
+    }
+
+    /**
+     * Moves the gap of the tokens to an index. The tokens between its old and new position are copied, and their
+     * starts are shifted (the tokens after the gap are stored shift less).
+     */
+    private void moveTokenGap(int index) {
+        if (tokenGap == Integer.MAX_VALUE) { // no edit yet: the gap is the free space after the tokens
+            tokenGap = size;
+            tokenGapLength = kinds.length - size;
+        }
+        if (index < tokenGap) {
+            int count = tokenGap - index;
+            System.arraycopy(kinds, index, kinds, index + tokenGapLength, count);
+            System.arraycopy(lengths, index, lengths, index + tokenGapLength, count);
+            System.arraycopy(payloads, index, payloads, index + tokenGapLength, count);
+            for (int i = tokenGap - 1; i >= index; i--)
+                starts[i + tokenGapLength] = starts[i] - shift;
+        } else {
+            int count = index - tokenGap;
+            System.arraycopy(kinds, tokenGap + tokenGapLength, kinds, tokenGap, count);
+            System.arraycopy(lengths, tokenGap + tokenGapLength, lengths, tokenGap, count);
+            System.arraycopy(payloads, tokenGap + tokenGapLength, payloads, tokenGap, count);
+            for (int i = tokenGap; i < index; i++)
+                starts[i] = starts[i + tokenGapLength] + shift;
+        }
+        tokenGap = index;
+    }
+}
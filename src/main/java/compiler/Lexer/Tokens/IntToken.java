@@ -5,20 +5,52 @@ import compiler.Lexer.TokenMatching;
 //REMARK: IT DOESNT TAKE IN COUNT THE SYMBOL + OR -
 public class IntToken implements TokenMatching {
     public static boolean isTokenMatched(String code) {
-        if (code.startsWith("+") || code.startsWith("-"))
-            return false;
-        if (code.startsWith(" ") || code.startsWith("\n") || code.startsWith("\t"))
-            return false;
-        if (code.endsWith(" ") || code.endsWith("\n") || code.endsWith("\t"))
+        if (code.isEmpty())
             return false;
 
-        // Verify if the string is a valid integer
-        try {
-            Integer.parseInt(code);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
+        // Verify if the string is a valid integer, digit by digit
+        int value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            int digit = code.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10)
+                return false;
+            value = value * 10 + digit;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the value of a complete int literal.
+     *
+     * @param chars  the source buffer.
+     * @param start  offset of the first digit.
+     * @param length number of digits.
+     * @return the value, or -1 if it doesn't fit in an int.
+     */
+    public static int value(char[] chars, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = chars[i] - '0';
+            if (value > (Integer.MAX_VALUE - digit) / 10)
+                return -1;
+            value = value * 10 + digit;
         }
+        return value;
+    }
 
+    /**
+     * Computes the value of a complete int literal read from an (ASCII) byte buffer.
+     *
+     * @see #value(char[], int, int)
+     */
+    public static int value(byte[] bytes, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = bytes[i] - '0';
+            if (value > (Integer.MAX_VALUE - digit) / 10)
+                return -1;
+            value = value * 10 + digit;
+        }
+        return value;
     }
-}
\ No newline at end of file
+}
@@ -5,19 +5,18 @@ import compiler.Lexer.TokenMatching;
 //REMARK: IT DOESNT TAKE IN COUNT THE SYMBOL + OR -
 public class RealToken implements TokenMatching {
     public static boolean isTokenMatched(String code) {
-        if (code.startsWith("+") || code.startsWith("-"))
-            return false;
-        if (code.startsWith(" ") || code.startsWith("\n") || code.startsWith("\t"))
-            return false;
-        if (code.endsWith(" ") || code.endsWith("\n") || code.endsWith("\t"))
-            return false;
-
-        // Verify if the string is a valid double
-        try {
-            Double.parseDouble(code);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
+        // Verify if the string is a valid real (digits with at most one '.'), char by char
+        boolean digits = false;
+        boolean dot = false;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c >= '0' && c <= '9')
+                digits = true;
+            else if (c == '.' && !dot)
+                dot = true;
+            else
+                return false;
         }
+        return digits;
     }
-}
\ No newline at end of file
+}
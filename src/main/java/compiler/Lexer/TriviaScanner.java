@@ -0,0 +1,59 @@
+package compiler.Lexer;
+
+/**
+ * Finds the end of the trivia (blanks and comment lines) that the Lexer skips.
+ * This is the scalar implementation: when the jdk.incubator.vector module is available, INSTANCE is a
+ * VectorTriviaScanner that checks many chars at once.
+ */
+class TriviaScanner {
+    static final TriviaScanner INSTANCE = load();
+
+    private static TriviaScanner load() {
+        try {
+            Class<?> vector = Class.forName("compiler.Lexer.VectorTriviaScanner");
+            return (TriviaScanner) vector.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new TriviaScanner(); // module not resolved (no --add-modules jdk.incubator.vector)
+        }
+    }
+
+    static boolean isBlank(int c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * @return the offset of the first char in [pos, end[ that isn't a blank (end if there is none).
+     */
+    int skipBlanks(char[] chars, int pos, int end) {
+        while (pos < end && isBlank(chars[pos]))
+            pos++;
+        return pos;
+    }
+
+    /**
+     * @return the offset of the first byte in [pos, end[ that isn't a blank (end if there is none).
+     */
+    int skipBlanks(byte[] bytes, int pos, int end) {
+        while (pos < end && isBlank(bytes[pos]))
+            pos++;
+        return pos;
+    }
+
+    /**
+     * @return the offset of the first newline in [pos, end[ (end if there is none).
+     */
+    int lineEnd(char[] chars, int pos, int end) {
+        while (pos < end && chars[pos] != '\n')
+            pos++;
+        return pos;
+    }
+
+    /**
+     * @return the offset of the first newline in [pos, end[ (end if there is none).
+     */
+    int lineEnd(byte[] bytes, int pos, int end) {
+        while (pos < end && bytes[pos] != '\n')
+            pos++;
+        return pos;
+    }
+}
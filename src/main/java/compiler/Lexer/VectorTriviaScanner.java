@@ -0,0 +1,65 @@
+package compiler.Lexer;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * TriviaScanner using the Vector API: a whole vector of chars (16 to 64 bytes) is compared at once, and the scalar
+ * code only handles the tail of the buffer. Only loaded by TriviaScanner if jdk.incubator.vector is available.
+ */
+final class VectorTriviaScanner extends TriviaScanner {
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+
+    @Override
+    int skipBlanks(char[] chars, int pos, int end) {
+        int bound = pos + CHARS.loopBound(end - pos);
+        for (; pos < bound; pos += CHARS.length()) {
+            ShortVector v = ShortVector.fromCharArray(CHARS, chars, pos);
+            VectorMask<Short> blank = v.eq((short) ' ').or(v.eq((short) '\n')).or(v.eq((short) '\t'))
+                    .or(v.eq((short) '\r'));
+            int first = blank.not().firstTrue();
+            if (first < CHARS.length())
+                return pos + first;
+        }
+        return super.skipBlanks(chars, pos, end);
+    }
+
+    @Override
+    int skipBlanks(byte[] bytes, int pos, int end) {
+        int bound = pos + BYTES.loopBound(end - pos);
+        for (; pos < bound; pos += BYTES.length()) {
+            ByteVector v = ByteVector.fromArray(BYTES, bytes, pos);
+            VectorMask<Byte> blank = v.eq((byte) ' ').or(v.eq((byte) '\n')).or(v.eq((byte) '\t'))
+                    .or(v.eq((byte) '\r'));
+            int first = blank.not().firstTrue();
+            if (first < BYTES.length())
+                return pos + first;
+        }
+        return super.skipBlanks(bytes, pos, end);
+    }
+
+    @Override
+    int lineEnd(char[] chars, int pos, int end) {
+        int bound = pos + CHARS.loopBound(end - pos);
+        for (; pos < bound; pos += CHARS.length()) {
+            int first = ShortVector.fromCharArray(CHARS, chars, pos).eq((short) '\n').firstTrue();
+            if (first < CHARS.length())
+                return pos + first;
+        }
+        return super.lineEnd(chars, pos, end);
+    }
+
+    @Override
+    int lineEnd(byte[] bytes, int pos, int end) {
+        int bound = pos + BYTES.loopBound(end - pos);
+        for (; pos < bound; pos += BYTES.length()) {
+            int first = ByteVector.fromArray(BYTES, bytes, pos).eq((byte) '\n').firstTrue();
+            if (first < BYTES.length())
+                return pos + first;
+        }
+        return super.lineEnd(bytes, pos, end);
+    }
+}
@@ -0,0 +1,350 @@
+package compiler.Nodes;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Flat representation of an AST: the nodes are indexes (in post-order, the root is the last one) and their kind,
+ * offset, first child, next sibling and data are stored in primitive arrays, so a large program is a handful of
+ * arrays instead of millions of objects. The data of a node is what ASTCodec writes for it (names as indexes in the
+ * string table, literal values, list sizes), stored as ints. An arena is read straight from the binary form of an
+ * AST (see ASTCodec.arena()), without building its nodes.
+ * The tree is walked with a Cursor, and any subtree (a procedure, a declaration...) can be turned back into nodes
+ * with node(), so the passes can work on one part of the program at a time (see program()).
+ */
+public final class ASTArena {
+    private byte[] kinds; // tag of the node (see ASTCodec), 0 for a missing child
+    private int[] offsets;
+    private int[] firstChild; // -1 if none
+    private int[] nextSibling; // -1 if none
+    private int[] data; // start of the data of the node in values
+    private int size;
+
+    private int[] values = new int[64];
+    private int valueCount;
+    private final String[] strings;
+
+    // while the arena is read: the subtrees that don't have their parent yet
+    private int[] roots = new int[64];
+    private int rootCount;
+    private final ASTCodec.Sink sink = new ASTCodec.Sink() {
+        @Override
+        public void varint(int value) {
+            add(value);
+        }
+
+        @Override
+        public void fixed64(long value) {
+            add((int) value);
+            add((int) (value >>> 32));
+        }
+    };
+
+    /**
+     * @param strings  the string table of the nodes.
+     * @param capacity the expected number of nodes.
+     */
+    ASTArena(String[] strings, int capacity) {
+        this.strings = strings;
+        capacity = Math.max(capacity, 16);
+        kinds = new byte[capacity];
+        offsets = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        data = new int[capacity];
+    }
+
+    /**
+     * Appends the next node in post-order, its children being the last subtrees appended.
+     *
+     * @param tag    the tag of the node, 0 for a missing child.
+     * @param offset the offset of the node.
+     * @param in     the data of the node (see ASTCodec.data()).
+     */
+    void add(int tag, int offset, ASTCodec.Source in) {
+        if (size == kinds.length)
+            grow();
+        int index = size++;
+        kinds[index] = (byte) tag;
+        offsets[index] = offset;
+        data[index] = valueCount;
+        nextSibling[index] = -1;
+
+        int children = tag == 0 ? 0 : ASTCodec.copy(tag, in, sink);
+        if (children > rootCount)
+            throw new IllegalStateException("Missing children.");
+        int first = rootCount - children;
+        firstChild[index] = children == 0 ? -1 : roots[first];
+        for (int i = first; i + 1 < rootCount; i++)
+            nextSibling[roots[i]] = roots[i + 1];
+        rootCount = first;
+
+        if (rootCount == roots.length)
+            roots = Arrays.copyOf(roots, rootCount * 2);
+        roots[rootCount++] = index;
+    }
+
+    /**
+     * Ends the reading of the arena.
+     */
+    void end() {
+        if (rootCount != 1 || ASTCodec.kind(kinds[size - 1]) != ProgramNode.class)
+            throw new IllegalStateException("The nodes don't form a program.");
+        roots = null;
+
+        // trimmed, the arena is only read from now on
+        kinds = Arrays.copyOf(kinds, size);
+        offsets = Arrays.copyOf(offsets, size);
+        firstChild = Arrays.copyOf(firstChild, size);
+        nextSibling = Arrays.copyOf(nextSibling, size);
+        data = Arrays.copyOf(data, size);
+        values = Arrays.copyOf(values, valueCount);
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        data = Arrays.copyOf(data, capacity);
+    }
+
+    private void add(int value) {
+        if (valueCount == values.length)
+            values = Arrays.copyOf(values, valueCount * 2);
+        values[valueCount++] = value;
+    }
+
+    /**
+     * Builds the program with its procedures parsed lazily: the declarations and the headers of the procedures are
+     * built now, found by walking the arena with a Cursor, and the body of a procedure is built from the arena the
+     * first time it is needed (see ProcedureNode.getBlock()).
+     *
+     * @return the program of the arena.
+     */
+    public ProgramNode program() throws ParseException {
+        ArrayList<CVVNode.Const> constants = new ArrayList<>();
+        ArrayList<RecordDeclarationNode> records = new ArrayList<>();
+        ArrayList<CVVNode> valVar = new ArrayList<>();
+        ArrayList<ProcedureNode> procedures = new ArrayList<>();
+
+        Cursor cursor = cursor();
+        if (cursor.firstChild()) {
+            do {
+                Class<? extends ASTNode> kind = cursor.kind();
+                if (kind == ProcedureNode.class)
+                    procedures.add(procedure(cursor));
+                else if (kind == RecordDeclarationNode.class)
+                    records.add((RecordDeclarationNode) cursor.node());
+                else if (kind == CVVNode.Const.class)
+                    constants.add((CVVNode.Const) cursor.node());
+                else
+                    valVar.add((CVVNode) cursor.node());
+            } while (cursor.nextSibling());
+        }
+
+        ProgramNode program = new ProgramNode(constants, records, valVar, procedures);
+        program.offset = offsets[size - 1];
+        return program;
+    }
+
+    /**
+     * Builds the header of the procedure under the cursor, its block being built when it is needed.
+     */
+    @SuppressWarnings("unchecked")
+    private ProcedureNode procedure(Cursor cursor) throws ParseException {
+        int index = cursor.index();
+        ArrayList<ASTNode> header = new ArrayList<>(); // identifier, parameters and return type
+        cursor.firstChild();
+        int block;
+        while (true) {
+            int child = cursor.index();
+            if (!cursor.nextSibling()) {
+                block = child;
+                break;
+            }
+            header.add(node(child));
+        }
+        cursor.parent();
+
+        int last = header.size() - 1;
+        ArrayList<ParameterNode> params = new ArrayList<>((List<ParameterNode>) (List<?>) header.subList(1, last));
+        ProcedureNode procedure = new ProcedureNode((IdentifierNode) header.get(0), params, (TypeNode) header.get(last),
+                () -> (BlockNode) node(block));
+        procedure.offset = offsets[index];
+        return procedure;
+    }
+
+    /**
+     * @return the number of nodes (missing children included).
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a new cursor on the root.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Builds the nodes of a subtree.
+     *
+     * @param index a node of the arena.
+     * @return the node and its descendants, as objects.
+     */
+    public ASTNode node(int index) throws ParseException {
+        if (kinds[index] == 0)
+            return null;
+
+        // post-order, the path from the subtree root to the current node being the explicit stack
+        ArrayList<ASTNode> built = new ArrayList<>();
+        Values source = new Values();
+        int[] path = new int[64];
+        int depth = 0;
+        path[0] = index;
+        while (true) {
+            for (int child = firstChild[path[depth]]; child >= 0; child = firstChild[child]) {
+                if (++depth == path.length)
+                    path = Arrays.copyOf(path, depth * 2);
+                path[depth] = child;
+            }
+            while (true) { // build the node, then its parents until one has a next child
+                int done = path[depth];
+                built.add(build(done, source, built));
+                if (depth == 0)
+                    return built.get(0);
+                if (nextSibling[done] >= 0) {
+                    path[depth] = nextSibling[done];
+                    break;
+                }
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Builds a node from its data, its children being the last built nodes.
+     */
+    private ASTNode build(int index, Values source, ArrayList<ASTNode> built) throws ParseException {
+        if (kinds[index] == 0)
+            return null;
+        source.position = data[index];
+        ASTNode node = ASTCodec.node(kinds[index], source, strings, built);
+        node.offset = offsets[index];
+        return node;
+    }
+
+    /** Reads the data of a node. */
+    private final class Values implements ASTCodec.Source {
+        int position;
+
+        @Override
+        public int varint() {
+            return values[position++];
+        }
+
+        @Override
+        public long fixed64() {
+            long low = values[position++] & 0xFFFFFFFFL;
+            return low | ((long) values[position++] << 32);
+        }
+    }
+
+    /**
+     * Walks the nodes of an arena without building them.
+     */
+    public final class Cursor {
+        private int node = size - 1; // the root
+        private int[] parents = new int[16];
+        private int depth;
+
+        private Cursor() {
+        }
+
+        /**
+         * @return the index of the current node (see ASTArena.node()).
+         */
+        public int index() {
+            return node;
+        }
+
+        /**
+         * @return the class of the current node, null for a missing child.
+         */
+        public Class<? extends ASTNode> kind() {
+            return ASTCodec.kind(kinds[node]);
+        }
+
+        /**
+         * @return the offset of the current node in the source.
+         */
+        public int offset() {
+            return offsets[node];
+        }
+
+        /**
+         * @return the name of an identifier or the value of a string literal, null for the other nodes.
+         */
+        public String name() {
+            Class<? extends ASTNode> kind = kind();
+            if (kind != IdentifierNode.class && kind != LiteralNode.String.class)
+                return null;
+            int index = values[data[node]];
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        /**
+         * Moves to the first child of the current node.
+         *
+         * @return false (and doesn't move) if the node has no child.
+         */
+        public boolean firstChild() {
+            int child = firstChild[node];
+            if (child < 0)
+                return false;
+            if (depth == parents.length)
+                parents = Arrays.copyOf(parents, depth * 2);
+            parents[depth++] = node;
+            node = child;
+            return true;
+        }
+
+        /**
+         * Moves to the next sibling of the current node.
+         *
+         * @return false (and doesn't move) if the node is the last child of its parent.
+         */
+        public boolean nextSibling() {
+            int sibling = nextSibling[node];
+            if (sibling < 0)
+                return false;
+            node = sibling;
+            return true;
+        }
+
+        /**
+         * Moves to the parent of the current node.
+         *
+         * @return false if the node is the root.
+         */
+        public boolean parent() {
+            if (depth == 0)
+                return false;
+            node = parents[--depth];
+            return true;
+        }
+
+        /**
+         * @return the current node and its descendants, as objects.
+         */
+        public ASTNode node() throws ParseException {
+            return ASTArena.this.node(node);
+        }
+    }
+}
@@ -0,0 +1,584 @@
+package compiler.Nodes;
+
+import compiler.Lexer.Token;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Compact binary form of an AST, used to cache the result of the Lexer and the Parser of a source file.
+ * Layout: magic, version, SHA-256 of the source, the string table (identifiers and string literals, each stored
+ * once) and the nodes in post-order. A node is its kind tag, its offset (relative to the previous node) and its own
+ * data (names as indexes in the string table, literal values, list sizes), all varint-encoded; its children are the
+ * nodes written just before it. Both directions use an explicit stack, so long chains of operators don't recurse.
+ * It is read back as nodes (decode()) or as an ASTArena (arena()).
+ */
+public final class ASTCodec {
+    private static final byte[] MAGIC = { 'A', 'S', 'T', 0 };
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+
+    // kinds of nodes, the tag of a node is its index (0 is a null child)
+    private static final Class<?>[] KINDS = {
+            null, ProgramNode.class, CVVNode.Const.class, CVVNode.Val.class, CVVNode.Var.class,
+            RecordDeclarationNode.class, FieldDeclarationNode.class, ProcedureNode.class, ParameterNode.class,
+            BlockNode.class, TypeNode.Base.class, TypeNode.Identifier.class, TypeNode.Array.class,
+            TypeNode.Void.class, IdentifierNode.class, LiteralNode.Int.class, LiteralNode.Real.class,
+            LiteralNode.String.class, LiteralNode.Bool.class, ArithFactorNode.class, ArithFactorNode.Positive.class,
+            ArithFactorNode.Negative.class, ArithTermNode.class, ArithTermNode.Multiplication.class,
+            ArithTermNode.Division.class, ArithTermNode.Modulo.class, BoolFactorNode.class,
+            BoolFactorNode.Addition.class, BoolFactorNode.Subtraction.class, BoolTermNode.class,
+            BoolTermNode.Lower.class, BoolTermNode.LEQ.class, BoolTermNode.Greater.class, BoolTermNode.GEQ.class,
+            BoolTermNode.Equal.class, BoolTermNode.Different.class, ExpressionNode.class, ExpressionNode.Or.class,
+            ExpressionNode.And.class, FunctionCallNode.class, ArrayInitNode.class, ArrayAccessNode.class,
+            RecordAccessNode.class, AssignmentNode.class, IfNode.class, IfNode.Else.class, WhileNode.class,
+            ForNode.class, ForNode.By.class, ReturnNode.class, DeleteNode.class };
+    private static final IdentityHashMap<Class<?>, Integer> TAGS = new IdentityHashMap<>();
+
+    static {
+        for (int tag = 1; tag < KINDS.length; tag++)
+            TAGS.put(KINDS[tag], tag);
+    }
+
+    private static final Token[] TOKENS = Token.values();
+
+    private ASTCodec() {
+    }
+
+    /**
+     * @param source the bytes of a source file.
+     * @return the SHA-256 of the source, the key of its cached AST.
+     */
+    public static byte[] hash(ByteBuffer source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(source.duplicate());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM has SHA-256
+        }
+    }
+
+    // ------------------------------------ ENCODING ------------------------------------
+
+    /**
+     * @param ast  the AST of a source file.
+     * @param hash the hash of the source (see hash()).
+     * @return the binary form of the AST.
+     * @throws ParseException if the body of a lazily parsed procedure has a syntax error.
+     */
+    public static byte[] encode(ProgramNode ast, byte[] hash) throws ParseException {
+        Output nodes = new Output(1 << 12);
+        HashMap<String, Integer> strings = new HashMap<>();
+        ArrayList<String> table = new ArrayList<>();
+
+        // reverse post-order: each node before its children, the last child first
+        ArrayList<ASTNode> pending = new ArrayList<>();
+        ArrayList<ASTNode> ordered = new ArrayList<>();
+        pending.add(ast);
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.remove(pending.size() - 1);
+            ordered.add(node);
+            if (node != null)
+                node.children(pending);
+        }
+        int offset = -1;
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            ASTNode node = ordered.get(i);
+            if (node == null) {
+                nodes.varint(0);
+                continue;
+            }
+            nodes.varint(tag(node));
+            nodes.varint(zigzag(node.offset - offset)); // close to the previous node
+            offset = node.offset;
+            data(node, nodes, strings, table);
+        }
+
+        Output out = new Output(nodes.size + 64 + table.size() * 8);
+        out.bytes(MAGIC, MAGIC.length);
+        out.varint(VERSION);
+        out.bytes(hash, HASH_LENGTH);
+        out.varint(table.size());
+        for (String s : table) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            out.varint(utf8.length);
+            out.bytes(utf8, utf8.length);
+        }
+        out.varint(ordered.size());
+        out.bytes(nodes.buffer, nodes.size);
+        return Arrays.copyOf(out.buffer, out.size);
+    }
+
+    /**
+     * Writes the data of a node that aren't children.
+     */
+    private static void data(ASTNode node, Sink out, HashMap<String, Integer> strings, ArrayList<String> table) {
+        if (node instanceof ProgramNode n) {
+            out.varint(n.constants.size());
+            out.varint(n.records.size());
+            out.varint(n.valVar.size());
+            out.varint(n.procedures.size());
+        } else if (node instanceof RecordDeclarationNode n) {
+            out.varint(n.fields.size());
+        } else if (node instanceof ProcedureNode n) {
+            out.varint(n.params.size());
+        } else if (node instanceof BlockNode n) {
+            out.varint(n.statements.size());
+        } else if (node instanceof FunctionCallNode n) {
+            out.varint(n.args.size());
+        } else if (node instanceof TypeNode.Base n) {
+            out.varint(n.token.ordinal());
+        } else if (node instanceof IdentifierNode n) {
+            out.varint(string(n.name, strings, table));
+        } else if (node instanceof LiteralNode.Int n) {
+            out.varint(zigzag(n.content));
+        } else if (node instanceof LiteralNode.Real n) {
+            out.fixed64(Double.doubleToRawLongBits(n.content));
+        } else if (node instanceof LiteralNode.String n) {
+            out.varint(string(n.content, strings, table));
+        } else if (node instanceof LiteralNode.Bool n) {
+            out.varint(n.content ? 1 : 0);
+        }
+    }
+
+    /**
+     * @return the index + 1 of a string in the table (0 is null).
+     */
+    private static int string(String s, HashMap<String, Integer> strings, ArrayList<String> table) {
+        if (s == null)
+            return 0;
+        Integer index = strings.get(s);
+        if (index == null) {
+            index = table.size();
+            strings.put(s, index);
+            table.add(s);
+        }
+        return index + 1;
+    }
+
+    // ------------------------------------ DECODING ------------------------------------
+
+    /**
+     * @param data the binary form of an AST (see encode()).
+     * @param hash the hash of the current source.
+     * @return the AST, or null if it was encoded from another source or by another version of the compiler.
+     * @throws IOException if the data are corrupted.
+     */
+    public static ProgramNode decode(byte[] data, byte[] hash) throws IOException {
+        Input in = open(data, hash);
+        if (in == null)
+            return null;
+
+        try {
+            String[] table = table(in);
+            int count = in.varint();
+            int offset = -1;
+            ArrayList<ASTNode> stack = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int tag = in.varint();
+                ASTNode node = null;
+                if (tag != 0) {
+                    offset += unzigzag(in.varint());
+                    node = node(tag, in, table, stack);
+                    node.offset = offset;
+                }
+                stack.add(node);
+            }
+            if (stack.size() != 1 || !(stack.get(0) instanceof ProgramNode program))
+                throw new IOException("Corrupted AST cache.");
+            return program;
+        } catch (RuntimeException | ParseException e) { // out of bounds, wrong kind of child...
+            throw new IOException("Corrupted AST cache.", e);
+        }
+    }
+
+    /**
+     * Reads the binary form of an AST into an arena, without building its nodes.
+     *
+     * @param data the binary form of an AST (see encode()).
+     * @param hash the hash of the current source.
+     * @return the arena, or null if the AST was encoded from another source or by another version of the compiler.
+     * @throws IOException if the data are corrupted.
+     */
+    public static ASTArena arena(byte[] data, byte[] hash) throws IOException {
+        Input in = open(data, hash);
+        if (in == null)
+            return null;
+
+        try {
+            String[] table = table(in);
+            int count = in.varint();
+            ASTArena arena = new ASTArena(table, Math.min(count, data.length - in.pos)); // a node is 1 byte or more
+            int offset = -1;
+            for (int i = 0; i < count; i++) {
+                int tag = in.varint();
+                if (tag != 0)
+                    offset += unzigzag(in.varint());
+                arena.add(tag, tag == 0 ? -1 : offset, in);
+            }
+            arena.end();
+            return arena;
+        } catch (RuntimeException e) { // out of bounds, wrong number of children...
+            throw new IOException("Corrupted AST cache.", e);
+        }
+    }
+
+    /**
+     * @return the input after the header, or null if the data weren't encoded from this source by this version.
+     */
+    private static Input open(byte[] data, byte[] hash) {
+        Input in = new Input(data);
+        for (byte b : MAGIC)
+            if (in.pos >= data.length || data[in.pos++] != b)
+                return null;
+        if (in.varint() != VERSION)
+            return null;
+        if (in.pos + HASH_LENGTH > data.length
+                || !Arrays.equals(data, in.pos, in.pos + HASH_LENGTH, hash, 0, hash.length))
+            return null;
+        in.pos += HASH_LENGTH;
+        return in;
+    }
+
+    private static String[] table(Input in) {
+        String[] table = new String[in.varint()];
+        for (int i = 0; i < table.length; i++) {
+            int length = in.varint();
+            table[i] = new String(in.data, in.pos, length, StandardCharsets.UTF_8); // one per name, like the NamePool
+            in.pos += length;
+        }
+        return table;
+    }
+
+    /**
+     * Copies the data of a node (see data()) without building it.
+     *
+     * @param tag the tag of the node.
+     * @return the number of children of the node.
+     */
+    static int copy(int tag, Source in, Sink out) {
+        return switch (tag) {
+            case 1 -> copy(in, out) + copy(in, out) + copy(in, out) + copy(in, out);
+            case 5, 39 -> 1 + copy(in, out);
+            case 7 -> 3 + copy(in, out);
+            case 9 -> copy(in, out);
+            case 10, 14, 15, 17, 18 -> {
+                copy(in, out);
+                yield 0;
+            }
+            case 16 -> {
+                out.fixed64(in.fixed64());
+                yield 0;
+            }
+            case 13 -> 0;
+            case 11, 12, 19, 20, 21, 49, 50 -> 1;
+            case 2, 3, 4, 45 -> 3;
+            case 47 -> 4;
+            case 48 -> 5;
+            case 6, 8, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 40, 41, 42, 43, 44, 46 -> 2;
+            default -> throw new IllegalArgumentException("Unknown node tag: " + tag);
+        };
+    }
+
+    /**
+     * Copies a varint.
+     *
+     * @return its value.
+     */
+    private static int copy(Source in, Sink out) {
+        int value = in.varint();
+        out.varint(value);
+        return value;
+    }
+
+    /**
+     * Builds a node from its data and its children, popped from the stack (its offset isn't set).
+     */
+    @SuppressWarnings("unchecked")
+    static ASTNode node(int tag, Source in, String[] table, ArrayList<ASTNode> stack) throws ParseException {
+        return switch (tag) {
+            case 1 -> {
+                int constants = in.varint(), records = in.varint(), valVar = in.varint(), procedures = in.varint();
+                ArrayList<ProcedureNode> p = (ArrayList<ProcedureNode>) pop(stack, procedures);
+                ArrayList<CVVNode> v = (ArrayList<CVVNode>) pop(stack, valVar);
+                ArrayList<RecordDeclarationNode> r = (ArrayList<RecordDeclarationNode>) pop(stack, records);
+                yield new ProgramNode((ArrayList<CVVNode.Const>) pop(stack, constants), r, v, p);
+            }
+            case 2 -> {
+                Expr expression = pop(stack);
+                TypeNode.Base type = pop(stack);
+                yield new CVVNode.Const(pop(stack), type, expression);
+            }
+            case 3 -> {
+                Expr expression = pop(stack);
+                TypeNode.Base type = pop(stack);
+                yield new CVVNode.Val(pop(stack), type, expression);
+            }
+            case 4 -> {
+                Expr expression = pop(stack);
+                TypeNode type = pop(stack);
+                yield new CVVNode.Var(pop(stack), type, expression);
+            }
+            case 5 -> {
+                ArrayList<FieldDeclarationNode> fields = (ArrayList<FieldDeclarationNode>) pop(stack, in.varint());
+                yield new RecordDeclarationNode(pop(stack), fields);
+            }
+            case 6 -> {
+                TypeNode type = pop(stack);
+                yield new FieldDeclarationNode(pop(stack), type);
+            }
+            case 7 -> {
+                int params = in.varint();
+                BlockNode block = pop(stack);
+                TypeNode returnType = pop(stack);
+                ArrayList<ParameterNode> p = (ArrayList<ParameterNode>) pop(stack, params);
+                yield new ProcedureNode(pop(stack), p, returnType, block);
+            }
+            case 8 -> {
+                TypeNode type = pop(stack);
+                yield new ParameterNode(pop(stack), type);
+            }
+            case 9 -> new BlockNode((ArrayList<ASTNode>) pop(stack, in.varint()));
+            case 10 -> new TypeNode.Base(TOKENS[in.varint()]);
+            case 11 -> new TypeNode.Identifier(pop(stack));
+            case 12 -> new TypeNode.Array(pop(stack));
+            case 13 -> new TypeNode.Void();
+            case 14 -> new IdentifierNode(string(in, table));
+            case 15 -> new LiteralNode.Int(unzigzag(in.varint()));
+            case 16 -> new LiteralNode.Real(Double.longBitsToDouble(in.fixed64()));
+            case 17 -> new LiteralNode.String(string(in, table));
+            case 18 -> new LiteralNode.Bool(String.valueOf(in.varint() != 0));
+            case 19 -> new ArithFactorNode((Expr) pop(stack));
+            case 20 -> new ArithFactorNode.Positive(pop(stack));
+            case 21 -> new ArithFactorNode.Negative(pop(stack));
+            case 22 -> wrapper(stack, ArithTermNode::new);
+            case 26 -> wrapper(stack, BoolFactorNode::new);
+            case 29 -> wrapper(stack, BoolTermNode::new);
+            case 36 -> {
+                Expr right = pop(stack);
+                Expr left = pop(stack);
+                yield right == null ? new ExpressionNode(left) : new ExpressionNode(left, right);
+            }
+            case 23, 24, 25, 27, 28, 30, 31, 32, 33, 34, 35, 37, 38 -> {
+                Expr right = pop(stack);
+                Expr left = pop(stack);
+                yield switch (tag) {
+                    case 23 -> new ArithTermNode.Multiplication(left, right);
+                    case 24 -> new ArithTermNode.Division(left, right);
+                    case 25 -> new ArithTermNode.Modulo(left, right);
+                    case 27 -> new BoolFactorNode.Addition(left, right);
+                    case 28 -> new BoolFactorNode.Subtraction(left, right);
+                    case 30 -> new BoolTermNode.Lower(left, right);
+                    case 31 -> new BoolTermNode.LEQ(left, right);
+                    case 32 -> new BoolTermNode.Greater(left, right);
+                    case 33 -> new BoolTermNode.GEQ(left, right);
+                    case 34 -> new BoolTermNode.Equal(left, right);
+                    case 35 -> new BoolTermNode.Different(left, right);
+                    case 37 -> new ExpressionNode.Or(left, right);
+                    default -> new ExpressionNode.And(left, right);
+                };
+            }
+            case 39 -> {
+                ArrayList<Expr> args = (ArrayList<Expr>) pop(stack, in.varint());
+                yield new FunctionCallNode(pop(stack), args);
+            }
+            case 40 -> {
+                ASTNode size = pop(stack);
+                yield new ArrayInitNode(pop(stack), size);
+            }
+            case 41 -> {
+                Expr index = pop(stack);
+                yield new ArrayAccessNode(pop(stack), index);
+            }
+            case 42 -> {
+                IdentifierNode field = pop(stack);
+                yield new RecordAccessNode(pop(stack), field);
+            }
+            case 43 -> {
+                Expr right = pop(stack);
+                yield new AssignmentNode(pop(stack), right);
+            }
+            case 44 -> {
+                BlockNode block = pop(stack);
+                yield new IfNode(pop(stack), block);
+            }
+            case 45 -> {
+                BlockNode elseBlock = pop(stack);
+                BlockNode block = pop(stack);
+                yield new IfNode.Else(pop(stack), block, elseBlock);
+            }
+            case 46 -> {
+                BlockNode block = pop(stack);
+                yield new WhileNode(pop(stack), block);
+            }
+            case 47 -> {
+                BlockNode block = pop(stack);
+                Expr to = pop(stack);
+                Expr from = pop(stack);
+                yield new ForNode(pop(stack), from, to, block);
+            }
+            case 48 -> {
+                BlockNode block = pop(stack);
+                LiteralNode.Int by = pop(stack);
+                LiteralNode.Int to = pop(stack);
+                LiteralNode.Int from = pop(stack);
+                yield new ForNode.By(pop(stack), from, to, by, block);
+            }
+            case 49 -> new ReturnNode(pop(stack));
+            case 50 -> new DeleteNode(pop(stack));
+            default -> throw new IllegalArgumentException("Unknown node tag: " + tag);
+        };
+    }
+
+    private interface Wrapper {
+        ASTNode wrap(Expr left);
+    }
+
+    /**
+     * Rebuilds a single-child node of a grammar level (its right child is always null).
+     */
+    private static ASTNode wrapper(ArrayList<ASTNode> stack, Wrapper wrapper) {
+        pop(stack);
+        return wrapper.wrap(pop(stack));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends ASTNode> T pop(ArrayList<ASTNode> stack) {
+        return (T) stack.remove(stack.size() - 1);
+    }
+
+    /**
+     * Pops the last nodes of the stack, in their order.
+     */
+    private static ArrayList<? extends ASTNode> pop(ArrayList<ASTNode> stack, int count) {
+        int from = stack.size() - count;
+        ArrayList<ASTNode> nodes = new ArrayList<>(stack.subList(from, stack.size()));
+        stack.subList(from, stack.size()).clear();
+        return nodes;
+    }
+
+    /**
+     * Maps the small negative ints to small positive ones for the varints.
+     */
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static String string(Source in, String[] table) {
+        int index = in.varint();
+        return index == 0 ? null : table[index - 1];
+    }
+
+    /**
+     * @param tag a node tag.
+     * @return the class of the nodes of the tag, null for 0 (a missing child).
+     */
+    @SuppressWarnings("unchecked")
+    static Class<? extends ASTNode> kind(int tag) {
+        return (Class<? extends ASTNode>) KINDS[tag];
+    }
+
+    /**
+     * @return the tag of the kind of a node.
+     */
+    private static int tag(ASTNode node) {
+        Integer tag = TAGS.get(node.getClass());
+        if (tag == null)
+            throw new IllegalArgumentException("Unknown node kind: " + node.getClass().getName());
+        return tag;
+    }
+
+    // ------------------------------------ BUFFERS ------------------------------------
+
+    /** Destination of the data of the nodes. */
+    interface Sink {
+        void varint(int value);
+
+        void fixed64(long value);
+    }
+
+    /** Source of the data of the nodes, in the order of the Sink. */
+    interface Source {
+        int varint();
+
+        long fixed64();
+    }
+
+    private static final class Output implements Sink {
+        byte[] buffer;
+        int size;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void reserve(int n) {
+            if (size + n > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + n));
+        }
+
+        @Override
+        public void varint(int value) {
+            reserve(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        @Override
+        public void fixed64(long value) {
+            reserve(8);
+            for (int i = 0; i < 8; i++, value >>>= 8)
+                buffer[size++] = (byte) value;
+        }
+
+        void bytes(byte[] bytes, int length) {
+            reserve(length);
+            System.arraycopy(bytes, 0, buffer, size, length);
+            size += length;
+        }
+    }
+
+    private static final class Input implements Source {
+        final byte[] data;
+        int pos;
+
+        Input(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int varint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+        }
+
+        @Override
+        public long fixed64() {
+            long value = 0;
+            for (int i = 0; i < 8; i++)
+                value |= (data[pos++] & 0xFFL) << (8 * i);
+            return value;
+        }
+    }
+}
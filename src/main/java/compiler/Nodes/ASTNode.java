@@ -1,11 +1,22 @@
 package compiler.Nodes;
 
+import compiler.CodeGenerator.Scope;
+import compiler.Exceptions.CodeGeneratorException.CodeGeneratorException;
+import compiler.Exceptions.SemanticException.SemanticException;
+import compiler.SemanticAnalyzer.SymbolTable;
+import compiler.Visitors.SemanticVisitor;
 import compiler.Visitors.Visitable;
 
+import java.text.ParseException;
+import java.util.List;
+
 /**
  * Represents a node of an AST.
  */
 public abstract class ASTNode implements Visitable {
+    /** Offset in the source of the first token of the node (see LineMap), -1 if unknown. Not part of equals(). */
+    public int offset = -1;
+
     public abstract String toString();
 
     public abstract boolean equals(Object obj);
@@ -17,4 +28,41 @@ public abstract class ASTNode implements Visitable {
      * @return if this node is a return statement or contains one (as the last line of code)
      */
     public boolean hasReturn() { return false; }
+
+    /**
+     * Checks a child node, locating the errors that don't have a position yet at the child.
+     * @param node a statement or a declaration.
+     */
+    protected static void check(ASTNode node, SemanticVisitor visitor, SymbolTable st)
+            throws ParseException, SemanticException {
+        try {
+            node.accept(visitor, st);
+        } catch (SemanticException e) {
+            throw e.locate(node.offset);
+        } catch (ParseException e) { // errors of the SymbolTable
+            if (e.getErrorOffset() >= 0 || node.offset < 0) // -1 is unknown
+                throw e;
+            ParseException located = new ParseException(e.getMessage(), node.offset);
+            located.initCause(e);
+            throw located;
+        }
+    }
+
+    /**
+     * Generates the code of a child node, locating the errors that don't have a position yet at the child.
+     * @param node a statement or a declaration.
+     */
+    protected static void generate(ASTNode node, Object o, Scope scope) throws CodeGeneratorException {
+        try {
+            node.accept(o, scope);
+        } catch (CodeGeneratorException e) {
+            throw e.locate(node.offset);
+        }
+    }
+
+    /**
+     * Appends the children of the node to a list, in source order (the missing optional children are nulls).
+     * @throws ParseException if the node is a lazy procedure whose body has a syntax error.
+     */
+    public abstract void children(List<ASTNode> out) throws ParseException;
 }
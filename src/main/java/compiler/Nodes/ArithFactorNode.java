@@ -11,8 +11,10 @@ import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.INEG;
@@ -36,12 +38,17 @@ public class ArithFactorNode extends PrimaryNode {
     }
 
     @Override
-    public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
+    protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
         return left.getDescriptor(scope);
     }
 
     // -------------------------------------------------------------------------
 
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(left);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         left.accept(visitor, depth); // we don't visit this if the instance isn't a Positive or Negative.
@@ -118,7 +125,7 @@ public class ArithFactorNode extends PrimaryNode {
                 throw new WrongASMObject("Wrong argument", "Function called with not a MethodVisitor as argument.");
 
             left.accept(mv, scope);
-            mv.visitInsn(left.descriptor.getOpcode(INEG)); // pops the top of the stack and pushes the opposite value back
+            mv.visitInsn(Type.getType(left.getDescriptor(scope)).getOpcode(INEG)); // pops the top of the stack and pushes the opposite value back
         }
 
         @Override
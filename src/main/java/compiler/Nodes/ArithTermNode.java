@@ -4,7 +4,6 @@ import compiler.CodeGenerator.CodeGenerator;
 import compiler.CodeGenerator.Scope;
 import compiler.Exceptions.CodeGeneratorException.*;
 import compiler.Exceptions.SemanticException.SemanticException;
-import compiler.SemanticAnalyzer.SemanticAnalyzer;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
@@ -12,14 +11,15 @@ import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.*;
 
 public class ArithTermNode extends ArithFactorNode {
-    public ArithTermNode right;
+    public Expr right;
 
-    private ArithTermNode(ArithFactorNode left, ArithTermNode right) {
+    private ArithTermNode(Expr left, Expr right) {
         super(left);
         this.right = right;
     }
@@ -29,7 +29,7 @@ public class ArithTermNode extends ArithFactorNode {
     }
 
     public static class Multiplication extends ArithTermNode {
-        public Multiplication(ArithFactorNode left, ArithTermNode right) {
+        public Multiplication(Expr left, Expr right) {
             super(left, right);
         }
 
@@ -62,7 +62,7 @@ public class ArithTermNode extends ArithFactorNode {
     }
 
     public static class Division extends ArithTermNode {
-        public Division(ArithFactorNode left, ArithTermNode right) {
+        public Division(Expr left, Expr right) {
             super(left, right);
         }
 
@@ -95,7 +95,7 @@ public class ArithTermNode extends ArithFactorNode {
     }
 
     public static class Modulo extends ArithTermNode {
-        public Modulo(ArithFactorNode left, ArithTermNode right) {
+        public Modulo(Expr left, Expr right) {
             super(left, right);
         }
 
@@ -116,7 +116,7 @@ public class ArithTermNode extends ArithFactorNode {
         }
 
         @Override
-        public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
+        protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
             if (right == null)
                 return left.getDescriptor(scope);
             if (left.isInt(scope) && right.isInt(scope))
@@ -152,7 +152,7 @@ public class ArithTermNode extends ArithFactorNode {
     }
 
     @Override
-    public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
+    protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
         if (right == null)
             return left.getDescriptor(scope);
         if (left.isReal(scope) || right.isReal(scope))
@@ -163,6 +163,12 @@ public class ArithTermNode extends ArithFactorNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(left);
+        out.add(right);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         if (right == null) {
@@ -179,7 +185,7 @@ public class ArithTermNode extends ArithFactorNode {
         visitor.visit(this, st);
 
         // TODO check if this updates correctly when the SV is run
-        descriptor = CodeGenerator.nodeToASMType(SemanticAnalyzer.getType(this, st));
+        descriptor = CodeGenerator.nodeToASMType(getType(st));
 
         left.accept(visitor, st);
         if (right != null)
@@ -7,7 +7,6 @@ import compiler.Exceptions.CodeGeneratorException.UnexpectedError;
 import compiler.Exceptions.CodeGeneratorException.WrongASMObject;
 import compiler.Exceptions.CodeGeneratorException.WrongType;
 import compiler.Exceptions.SemanticException.SemanticException;
-import compiler.SemanticAnalyzer.SemanticAnalyzer;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
@@ -15,6 +14,7 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.*;
@@ -56,14 +56,20 @@ public class ArrayAccessNode extends PrimaryNode {
     }
 
     @Override
-    public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
-        String desc = scope.cvvLookup(identifier.name).declaration.type.getDescriptor();
+    protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
+        String desc = identifier.binding.declaration.type.getDescriptor();
         if (desc.startsWith("["))
             return desc.substring(1);
         throw new UnexpectedError("Array type expected", "The descriptor of an array should start with [.");
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(identifier);
+        out.add(index);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -76,7 +82,7 @@ public class ArrayAccessNode extends PrimaryNode {
         visitor.visit(this, st);
 
         // TODO check if this updates correctly when the SV is run
-        descriptor = CodeGenerator.nodeToASMType(SemanticAnalyzer.getType(this, st));
+        descriptor = CodeGenerator.nodeToASMType(getType(st));
 
         identifier.accept(visitor, st);
         index.accept(visitor, st);
@@ -87,7 +93,7 @@ public class ArrayAccessNode extends PrimaryNode {
         if (!(o instanceof MethodVisitor mv))
             throw new WrongASMObject("Wrong argument", "Function called with not a MethodVisitor as argument.");
 
-        Scope.CVVDeclaration cvv = scope.cvvLookup(identifier.name);
+        Scope.CVVDeclaration cvv = identifier.binding;
 
         if (cvv.isGlobal) {
             mv.visitFieldInsn(GETSTATIC, "Program", identifier.name, cvv.declaration.type.getDescriptor());
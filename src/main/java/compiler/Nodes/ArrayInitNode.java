@@ -7,7 +7,6 @@ import compiler.Exceptions.CodeGeneratorException.WrongASMObject;
 import compiler.Exceptions.CodeGeneratorException.WrongType;
 import compiler.Exceptions.SemanticException.SemanticException;
 import compiler.Lexer.Token;
-import compiler.SemanticAnalyzer.SemanticAnalyzer;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
@@ -15,6 +14,7 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.*;
@@ -57,11 +57,17 @@ public class ArrayInitNode extends PrimaryNode {
     }
 
     @Override
-    public String getDescriptor(Scope scope) {
+    protected String resolveDescriptor(Scope scope) {
         return null; // TODO?
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(type);
+        out.add(size);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -74,7 +80,7 @@ public class ArrayInitNode extends PrimaryNode {
         visitor.visit(this, st);
 
         // TODO check if this updates correctly when the SV is run
-        descriptor = CodeGenerator.nodeToASMType(SemanticAnalyzer.getType(this, st));
+        descriptor = CodeGenerator.nodeToASMType(getType(st));
 
         type.accept(visitor, st);
         size.accept(visitor, st);
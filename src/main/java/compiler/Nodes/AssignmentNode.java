@@ -15,6 +15,7 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.*;
@@ -49,6 +50,12 @@ public class AssignmentNode extends ASTNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(left);
+        out.add(right);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -91,7 +98,7 @@ public class AssignmentNode extends ASTNode {
 
 
                 //not sure of the following lane
-                Scope.CVVDeclaration cvv = scope.cvvLookup(idn.name);
+                Scope.CVVDeclaration cvv = idn.binding;
 
                 //we firstly push the object reference onto the stack
                 mv.visitVarInsn(Opcodes.ALOAD, cvv.index);
@@ -99,7 +106,7 @@ public class AssignmentNode extends ASTNode {
                 //we change the order of the stack (the right part was pushed first but should be at the top)
                 mv.visitInsn(Opcodes.SWAP);
                 // Put field value on stack
-                mv.visitFieldInsn(Opcodes.PUTFIELD, ((IdentifierNode) ran.record).name, ran.field.name, ran.field.getDescriptor(scope));
+                mv.visitFieldInsn(Opcodes.PUTFIELD, ((IdentifierNode) ran.record).name, ran.field.name, ran.fieldDescriptor);
 
 
             } else if (ran.record instanceof ArrayAccessNode aan) {
@@ -113,7 +120,7 @@ public class AssignmentNode extends ASTNode {
 
         } else if (left instanceof ArrayAccessNode aan) {
 
-            Scope.CVVDeclaration cvv = scope.cvvLookup(aan.identifier.name);
+            Scope.CVVDeclaration cvv = aan.identifier.binding;
 
             mv.visitVarInsn(ALOAD, cvv.index);
             mv.visitIntInsn(BIPUSH, (int) aan.index.getValue(scope));
@@ -138,12 +145,12 @@ public class AssignmentNode extends ASTNode {
                 throw new UnexpectedError("Wrong array access", "Fail while accessing an array.");
 
         } else if (left instanceof IdentifierNode idn) {
-            Scope.CVVDeclaration cvv = scope.cvvLookup(idn.name); // get the declaration of this identifier
+            Scope.CVVDeclaration cvv = idn.binding; // the declaration of this identifier
 
             if (cvv.declaration.type instanceof TypeNode.Base) {
                 if (cvv.isGlobal) // field
-                    mv.visitFieldInsn(PUTSTATIC, scope.getClassName(), idn.name,
-                            cvv.declaration.expression.descriptor.getDescriptor());
+                    mv.visitFieldInsn(PUTSTATIC, cvv.scope.getClassName(), idn.name,
+                            cvv.declaration.type.getDescriptor());
                 else // local variable
                     mv.visitVarInsn(CodeGenerator.nodeToASMType(cvv.declaration.type).getOpcode(ISTORE), cvv.index);
             } else
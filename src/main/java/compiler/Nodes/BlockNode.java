@@ -10,6 +10,7 @@ import org.objectweb.asm.MethodVisitor;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public class BlockNode extends ASTNode {
@@ -48,6 +49,11 @@ public class BlockNode extends ASTNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.addAll(statements);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -62,12 +68,12 @@ public class BlockNode extends ASTNode {
         visitor.visit(this, st);
 
         for (ASTNode s : statements)
-            s.accept(visitor, st);
+            check(s, visitor, st);
     }
 
     public void accept(MethodVisitor mv, Scope scope) throws CodeGeneratorException {
         for (ASTNode s : statements){
-            s.accept(mv, scope);
+            generate(s, mv, scope);
 
         }
 
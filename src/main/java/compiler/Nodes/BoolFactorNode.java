@@ -7,7 +7,6 @@ import compiler.Exceptions.CodeGeneratorException.UnexpectedError;
 import compiler.Exceptions.CodeGeneratorException.WrongASMObject;
 import compiler.Exceptions.CodeGeneratorException.WrongType;
 import compiler.Exceptions.SemanticException.SemanticException;
-import compiler.SemanticAnalyzer.SemanticAnalyzer;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
@@ -15,15 +14,16 @@ import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static compiler.CodeGenerator.CodeGenerator.concat;
 import static org.objectweb.asm.Opcodes.*;
 
 public class BoolFactorNode extends ArithTermNode {
-    public BoolFactorNode right;
+    public Expr right;
 
-    private BoolFactorNode(ArithTermNode left, BoolFactorNode right) {
+    private BoolFactorNode(Expr left, Expr right) {
         super(left);
         this.right = right;
     }
@@ -33,6 +33,12 @@ public class BoolFactorNode extends ArithTermNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(left);
+        out.add(right);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         if (right == null) {
@@ -49,7 +55,7 @@ public class BoolFactorNode extends ArithTermNode {
         visitor.visit(this, st);
 
         // TODO check if this updates correctly when the SV is run
-        descriptor = CodeGenerator.nodeToASMType(SemanticAnalyzer.getType(this, st));
+        descriptor = CodeGenerator.nodeToASMType(getType(st));
 
         left.accept(visitor, st);
         if (right != null)
@@ -67,7 +73,7 @@ public class BoolFactorNode extends ArithTermNode {
     // -------------------------------------------------------------------------
 
     public static class Addition extends BoolFactorNode {
-        public Addition(ArithTermNode left, BoolFactorNode right) {
+        public Addition(Expr left, Expr right) {
             super(left, right);
         }
 
@@ -77,10 +83,10 @@ public class BoolFactorNode extends ArithTermNode {
         }
 
         @Override
-        public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
+        protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
             if (left.isString(scope) || right.isString(scope))
                 return "Ljava/lang/String;";
-            return super.getDescriptor(scope);
+            return super.resolveDescriptor(scope);
         }
 
         @Override
@@ -121,7 +127,7 @@ public class BoolFactorNode extends ArithTermNode {
     }
 
     public static class Subtraction extends BoolFactorNode {
-        public Subtraction(ArithTermNode left, BoolFactorNode right) {
+        public Subtraction(Expr left, Expr right) {
             super(left, right);
         }
 
@@ -153,7 +159,7 @@ public class BoolFactorNode extends ArithTermNode {
     }
 
     @Override
-    public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
+    protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
         if (right == null)
             return left.getDescriptor(scope);
 
@@ -7,7 +7,6 @@ import compiler.Exceptions.CodeGeneratorException.UnexpectedError;
 import compiler.Exceptions.CodeGeneratorException.WrongASMObject;
 import compiler.Exceptions.CodeGeneratorException.WrongType;
 import compiler.Exceptions.SemanticException.SemanticException;
-import compiler.SemanticAnalyzer.SemanticAnalyzer;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
@@ -16,15 +15,16 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static compiler.CodeGenerator.CodeGenerator.swapStack;
 import static org.objectweb.asm.Opcodes.*;
 
 public class BoolTermNode extends BoolFactorNode {
-    public BoolTermNode right;
+    public Expr right;
 
-    private BoolTermNode(BoolFactorNode left, BoolTermNode right) {
+    private BoolTermNode(Expr left, Expr right) {
         super(left);
         this.right = right;
     }
@@ -79,14 +79,14 @@ public class BoolTermNode extends BoolFactorNode {
     }
 
     @Override
-    public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
+    protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
         if (right != null)
             return "Z";
         return left.getDescriptor(scope);
     }
 
     public static class Lower extends BoolTermNode {
-        public Lower(BoolFactorNode left, BoolTermNode astNode) {
+        public Lower(Expr left, Expr astNode) {
             super(left, astNode);
         }
 
@@ -120,7 +120,7 @@ public class BoolTermNode extends BoolFactorNode {
     }
 
     public static class LEQ extends BoolTermNode {
-        public LEQ(BoolFactorNode left, BoolTermNode astNode) {
+        public LEQ(Expr left, Expr astNode) {
             super(left, astNode);
         }
 
@@ -154,7 +154,7 @@ public class BoolTermNode extends BoolFactorNode {
     }
 
     public static class Greater extends BoolTermNode {
-        public Greater(BoolFactorNode left, BoolTermNode astNode) {
+        public Greater(Expr left, Expr astNode) {
             super(left, astNode);
         }
 
@@ -188,7 +188,7 @@ public class BoolTermNode extends BoolFactorNode {
     }
 
     public static class GEQ extends BoolTermNode {
-        public GEQ(BoolFactorNode left, BoolTermNode astNode) {
+        public GEQ(Expr left, Expr astNode) {
             super(left, astNode);
         }
 
@@ -222,7 +222,7 @@ public class BoolTermNode extends BoolFactorNode {
     }
 
     public static class Equal extends BoolTermNode {
-        public Equal(BoolFactorNode left, BoolTermNode astNode) {
+        public Equal(Expr left, Expr astNode) {
             super(left, astNode);
         }
 
@@ -258,7 +258,7 @@ public class BoolTermNode extends BoolFactorNode {
     }
 
     public static class Different extends BoolTermNode {
-        public Different(BoolFactorNode left, BoolTermNode astNode) {
+        public Different(Expr left, Expr astNode) {
             super(left, astNode);
         }
 
@@ -313,6 +313,12 @@ public class BoolTermNode extends BoolFactorNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(left);
+        out.add(right);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         if (right == null) {
@@ -329,7 +335,7 @@ public class BoolTermNode extends BoolFactorNode {
         visitor.visit(this, st);
 
         // TODO check if this updates correctly when the SV is run
-        descriptor = CodeGenerator.nodeToASMType(SemanticAnalyzer.getType(this, st));
+        descriptor = CodeGenerator.nodeToASMType(getType(st));
 
         left.accept(visitor, st);
         if (right != null)
@@ -14,6 +14,7 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static compiler.CodeGenerator.CodeGenerator.nodeToASMType;
@@ -26,6 +27,7 @@ public abstract class CVVNode extends ASTNode {
     public IdentifierNode identifier;
     public TypeNode type;
     public Expr expression;
+    public Scope.CVVDeclaration binding; // slot or field of the declaration, set by the Binder
 
     private CVVNode(IdentifierNode identifier, TypeNode type, Expr expression) {
         this.identifier = identifier;
@@ -33,6 +35,13 @@ public abstract class CVVNode extends ASTNode {
         this.expression = expression;
     }
 
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(identifier);
+        out.add(type);
+        out.add(expression);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -62,8 +71,6 @@ public abstract class CVVNode extends ASTNode {
         @Override
         public void accept(Object o, Scope scope) throws CodeGeneratorException {
             if (o instanceof ClassWriter cw) {
-                Scope.CVVDeclaration var = scope.declareCVV(identifier.name, this, true);
-
                 cw.visitField(ACC_PUBLIC | ACC_FINAL | ACC_STATIC, identifier.name, type.getDescriptor(),
                         null, expression.getValue(scope));
             } else
@@ -84,13 +91,11 @@ public abstract class CVVNode extends ASTNode {
         @Override
         public void accept(Object o, Scope scope) throws CodeGeneratorException {
             if (o instanceof ClassWriter cw) {
-                Scope.CVVDeclaration var = scope.declareCVV(identifier.name, this, true);
-
                 cw.visitField(ACC_PUBLIC | ACC_FINAL | ACC_STATIC, identifier.name, type.getDescriptor(), null,
                         expression.getValue(scope));
 
             } else if (o instanceof MethodVisitor mv) {
-                Scope.CVVDeclaration cvv = scope.declareCVV(identifier.name, this, false);
+                Scope.CVVDeclaration cvv = binding;
 
                 expression.accept(o, scope);
                 mv.visitVarInsn(nodeToASMType(type).getOpcode(ISTORE), cvv.index); // save stack value to local variable table
@@ -113,8 +118,6 @@ public abstract class CVVNode extends ASTNode {
         public void accept(Object o, Scope scope) throws CodeGeneratorException {
             if (o instanceof ClassWriter cw) {
 
-                Scope.CVVDeclaration cvv = scope.declareCVV(identifier.name, this, true);
-
                 if (type instanceof TypeNode.Array) { //it is an array
                     cw.visitField(ACC_PUBLIC | ACC_STATIC, identifier.name, type.getDescriptor(), null, null);
 
@@ -139,7 +142,7 @@ public abstract class CVVNode extends ASTNode {
 
             } else if (o instanceof MethodVisitor mv) {
 
-                Scope.CVVDeclaration cvv = scope.declareCVV(identifier.name, this, false);
+                Scope.CVVDeclaration cvv = binding;
 
                 // push expression to the stack
                 expression.accept(o, scope);
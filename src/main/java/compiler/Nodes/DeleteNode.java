@@ -9,6 +9,7 @@ import compiler.Visitors.SemanticVisitor;
 import org.objectweb.asm.MethodVisitor;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 public class DeleteNode extends ASTNode {
@@ -39,6 +40,11 @@ public class DeleteNode extends ASTNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(deleted);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -56,11 +62,8 @@ public class DeleteNode extends ASTNode {
     public void accept(Object o, Scope scope) throws CodeGeneratorException {
         if (!(o instanceof MethodVisitor mv))
             throw new WrongASMObject("Wrong argument", "Function called with not a MethodVisitor as argument.");
-        //TODO read comment below
-        //instead of deleting the variable from the memory, we will just delete it from the scope and then It can be reused
-        //the problem is that when deleting we have to delete it also from the SymbolTable
-
-        scope.delete(deleted.name); // TODO semantic analyze if the delete doesn't delete wrong things (e.g. functions) && idk if we can delete outside of current scope
+        //instead of deleting the variable from the memory, it is just deleted from the scope by the Binder and then
+        //its slot can be reused: nothing to generate
 
     }
 
@@ -4,15 +4,21 @@ import compiler.CodeGenerator.Scope;
 import compiler.Exceptions.CodeGeneratorException.CodeGeneratorException;
 import compiler.Exceptions.CodeGeneratorException.UnexpectedError;
 import compiler.Exceptions.CodeGeneratorException.WrongType;
+import compiler.Exceptions.SemanticException.SemanticException;
+import compiler.SemanticAnalyzer.SType;
+import compiler.SemanticAnalyzer.SemanticAnalyzer;
+import compiler.SemanticAnalyzer.SymbolTable;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 
+import java.text.ParseException;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.I2D;
 
 public abstract class Expr extends ASTNode {
     public Type descriptor;
+    public SType stype; // resolved by the SemanticAnalyzer, null before the semantic pass
 
     public Expr(Type descriptor) {
         this.descriptor = descriptor;
@@ -35,7 +41,27 @@ public abstract class Expr extends ASTNode {
 
     public abstract Object getValue(Scope scope) throws WrongType, UnexpectedError;
 
-    public abstract String getDescriptor(Scope scope) throws WrongType, UnexpectedError;
+    /**
+     * @return the type of the expression, resolved by the SemanticAnalyzer the first time only: it is then kept in
+     * the node for the later checks and for the code generation.
+     */
+    public SType getType(SymbolTable st) throws ParseException, SemanticException {
+        return SemanticAnalyzer.getType(this, st);
+    }
+
+    /**
+     * @return the descriptor of the type resolved by the semantic pass, or the one found from the scope if the pass
+     * didn't run (or the type has none, like a record).
+     */
+    public final String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
+        String desc = stype != null ? stype.getDescriptor() : null;
+        return desc != null ? desc : resolveDescriptor(scope);
+    }
+
+    /**
+     * @return the descriptor of the expression, found from the declarations of the scope.
+     */
+    protected abstract String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError;
 
     protected boolean isInt(Object o) {
         return o instanceof Integer;
@@ -7,7 +7,6 @@ import compiler.Exceptions.CodeGeneratorException.UnexpectedError;
 import compiler.Exceptions.CodeGeneratorException.WrongASMObject;
 import compiler.Exceptions.CodeGeneratorException.WrongType;
 import compiler.Exceptions.SemanticException.SemanticException;
-import compiler.SemanticAnalyzer.SemanticAnalyzer;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
@@ -16,12 +15,13 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 public class ExpressionNode extends BoolTermNode {
-    public ExpressionNode right;
+    public Expr right;
 
-    public ExpressionNode(BoolFactorNode left, ExpressionNode right) {
+    public ExpressionNode(Expr left, Expr right) {
         super(left);
         this.right = right;
     }
@@ -31,7 +31,7 @@ public class ExpressionNode extends BoolTermNode {
     }
 
     public static class Or extends ExpressionNode {
-        public Or(BoolTermNode left, ExpressionNode right) {
+        public Or(Expr left, Expr right) {
             super(left, right);
         }
 
@@ -64,7 +64,7 @@ public class ExpressionNode extends BoolTermNode {
     }
 
     public static class And extends ExpressionNode {
-        public And(BoolTermNode left, ExpressionNode right) {
+        public And(Expr left, Expr right) {
             super(left, right);
         }
 
@@ -97,7 +97,7 @@ public class ExpressionNode extends BoolTermNode {
     }
 
     @Override
-    public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
+    protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
         if (right == null)
             return left.getDescriptor(scope);
         if (left.isBool(scope) && right.isBool(scope))
@@ -123,6 +123,12 @@ public class ExpressionNode extends BoolTermNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(left);
+        out.add(right);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         if (right == null) {
@@ -139,7 +145,7 @@ public class ExpressionNode extends BoolTermNode {
         visitor.visit(this, st);
 
         // TODO check if this updates correctly when the SV is run
-        descriptor = CodeGenerator.nodeToASMType(SemanticAnalyzer.getType(this, st));
+        descriptor = CodeGenerator.nodeToASMType(getType(st));
 
         left.accept(visitor, st);
         if (right != null)
@@ -12,6 +12,7 @@ import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 public class FieldDeclarationNode extends ASTNode {
@@ -44,6 +45,12 @@ public class FieldDeclarationNode extends ASTNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(identifier);
+        out.add(type);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
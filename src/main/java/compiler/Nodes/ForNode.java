@@ -13,6 +13,7 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.GOTO;
@@ -67,6 +68,14 @@ public class ForNode extends ASTNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(i);
+        out.add(from);
+        out.add(to);
+        out.add(block);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -96,7 +105,7 @@ public class ForNode extends ASTNode {
         from.accept(mv,scope);
 
         //we store the value of the stack onto our variable idx
-        Scope.CVVDeclaration var = scope.cvvLookup(i.name);
+        Scope.CVVDeclaration var = i.binding;
         mv.visitVarInsn(CodeGenerator.nodeToASMType(var.declaration.type).getOpcode(ISTORE), var.index);
 
 
@@ -144,6 +153,15 @@ public class ForNode extends ASTNode {
         }
 
         // -------------------------------------------------------------------------
+        @Override
+        public void children(List<ASTNode> out) {
+            out.add(i);
+            out.add(from);
+            out.add(to);
+            out.add(by);
+            out.add(block);
+        }
+
         @Override
         public void accept(PrintVisitor visitor, int depth) {
             visitor.visit(this, depth);
@@ -175,7 +193,7 @@ public class ForNode extends ASTNode {
             from.accept(mv,scope);
 
             //we store the value of the stack onto our variable idx
-            Scope.CVVDeclaration var = scope.cvvLookup(i.name);
+            Scope.CVVDeclaration var = i.binding;
             mv.visitVarInsn(CodeGenerator.nodeToASMType(var.declaration.type).getOpcode(ISTORE), var.index);
 
 
@@ -4,7 +4,6 @@ import compiler.CodeGenerator.CodeGenerator;
 import compiler.CodeGenerator.Scope;
 import compiler.Exceptions.CodeGeneratorException.*;
 import compiler.Exceptions.SemanticException.SemanticException;
-import compiler.SemanticAnalyzer.SemanticAnalyzer;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
@@ -12,6 +11,7 @@ import org.objectweb.asm.MethodVisitor;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import static compiler.CodeGenerator.CodeGenerator.*;
@@ -21,6 +21,8 @@ public class FunctionCallNode extends PrimaryNode {
     public IdentifierNode identifier;
 
     public ArrayList<Expr> args; // expressions
+    public Scope.ProcDeclaration procedure; // called procedure, set by the Binder
+    public Scope.RecordDeclaration record; // or built record, if no procedure has this name
 
     public FunctionCallNode(IdentifierNode identifier, ArrayList<Expr> args) {
         super(null); // TODO transform to right type once known
@@ -56,11 +58,20 @@ public class FunctionCallNode extends PrimaryNode {
     }
 
     @Override
-    public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
-        return scope.procLookup(identifier.name).declaration.returnType.getDescriptor();
+    protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
+        Scope.ProcDeclaration proc = procedure;
+        if (proc == null) // built-in procedure or record constructor, typed by the SemanticAnalyzer
+            return descriptor.getDescriptor();
+        return proc.declaration.returnType.getDescriptor();
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(identifier);
+        out.addAll(args);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -76,7 +87,7 @@ public class FunctionCallNode extends PrimaryNode {
         visitor.visit(this, st);
 
         // TODO check if this updates correctly when the SV is run
-        descriptor = CodeGenerator.nodeToASMType(SemanticAnalyzer.getType(this, st));
+        descriptor = CodeGenerator.nodeToASMType(getType(st));
 
         identifier.accept(visitor, st);
 
@@ -92,7 +103,7 @@ public class FunctionCallNode extends PrimaryNode {
         switch (identifier.name) {
             case "write", "writeInt", "writeReal", "writeBool", "writeln":
                 args.get(0).accept(o, scope);
-                printStack(mv, args.get(0).descriptor.getDescriptor(), identifier.name.equals("writeln"));
+                printStack(mv, args.get(0).getDescriptor(scope), identifier.name.equals("writeln"));
                 return;
             case "readInt":
                 readInt(mv);
@@ -110,15 +121,14 @@ public class FunctionCallNode extends PrimaryNode {
                 return;
         }
 
-        // Scope.CVVDeclaration cvv = scope.cvvLookup(this.identifier.name);
-        Scope.ProcDeclaration pro = scope.procLookup(identifier.name);
-        Scope.RecordDeclaration rec = scope.recordLookup(identifier.name); // TODO would it be a record or cvv? -> add else-if
+        Scope.ProcDeclaration pro = procedure;
+        Scope.RecordDeclaration rec = record;
 
         if (pro != null) {
             for (Expr arg : args)
                 arg.accept(o, scope);
 
-            mv.visitMethodInsn(INVOKESTATIC, scope.getClassName(), identifier.name, pro.declaration.getDescriptors(),
+            mv.visitMethodInsn(INVOKESTATIC, pro.scope.getClassName(), identifier.name, pro.declaration.getDescriptors(),
                     false);
         } else if (rec != null) {
             // create new empty record object
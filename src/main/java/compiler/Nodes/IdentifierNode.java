@@ -18,6 +18,7 @@ import static org.objectweb.asm.Opcodes.ILOAD;
 
 public class IdentifierNode extends PrimaryNode {
     public String name;
+    public Scope.CVVDeclaration binding; // declaration of the variable, set by the Binder
 
     public IdentifierNode(String name) {
         super(null); // TODO transform to right type once known
@@ -43,17 +44,17 @@ public class IdentifierNode extends PrimaryNode {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return Objects.hashCode(name);
     }
 
     @Override
     public Object getValue(Scope scope) throws WrongType, UnexpectedError {
-        return scope.cvvLookup(name).declaration.expression.getValue(scope);
+        return binding.declaration.expression.getValue(scope);
     }
 
     @Override
-    public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
-        return scope.cvvLookup(name).declaration.type.getDescriptor();
+    protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
+        return binding.declaration.type.getDescriptor();
     }
 
     // -------------------------------------------------------------------------
@@ -77,10 +78,10 @@ public class IdentifierNode extends PrimaryNode {
         if (!(o instanceof MethodVisitor mv))
             throw new WrongASMObject("Wrong argument", "Function called with not a MethodVisitor as argument.");
 
-        Scope.CVVDeclaration cvv = scope.cvvLookup(name); //from here we get the idx of the variable with this identifier (that should be already declared)
+        Scope.CVVDeclaration cvv = binding; // the idx of the variable with this identifier
 
         if (cvv.isGlobal) // field
-            mv.visitFieldInsn(GETSTATIC, scope.getClassName(), name, cvv.declaration.type.getDescriptor());
+            mv.visitFieldInsn(GETSTATIC, cvv.scope.getClassName(), name, cvv.declaration.type.getDescriptor());
         else // local variable
             mv.visitVarInsn(CodeGenerator.nodeToASMType(cvv.declaration.type).getOpcode(ILOAD), cvv.index);
     }
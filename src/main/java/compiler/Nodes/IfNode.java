@@ -12,6 +12,7 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 public class IfNode extends ASTNode {
@@ -29,6 +30,12 @@ public class IfNode extends ASTNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(condition);
+        out.add(block);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -103,6 +110,13 @@ public class IfNode extends ASTNode {
         }
 
         // -------------------------------------------------------------------------
+        @Override
+        public void children(List<ASTNode> out) {
+            out.add(condition);
+            out.add(block);
+            out.add(elseBlock);
+        }
+
         @Override
         public void accept(PrintVisitor visitor, int depth) {
             visitor.visit(this, depth);
@@ -21,8 +21,12 @@ public abstract class LiteralNode extends PrimaryNode {
         int content;
 
         public Int(java.lang.String content) {
+            this(Integer.parseInt(content));
+        }
+
+        public Int(int content) {
             super(Type.INT_TYPE);
-            this.content = Integer.parseInt(content);
+            this.content = content;
         }
 
         @Override
@@ -53,7 +57,7 @@ public abstract class LiteralNode extends PrimaryNode {
         }
 
         @Override
-        public java.lang.String getDescriptor(Scope scope) {
+        protected java.lang.String resolveDescriptor(Scope scope) {
             return "I";
         }
 
@@ -87,8 +91,12 @@ public abstract class LiteralNode extends PrimaryNode {
         double content;
 
         public Real(java.lang.String content) {
+            this(Double.parseDouble(content));
+        }
+
+        public Real(double content) {
             super(Type.DOUBLE_TYPE);
-            this.content = Double.parseDouble(content);
+            this.content = content;
         }
 
         @Override
@@ -119,7 +127,7 @@ public abstract class LiteralNode extends PrimaryNode {
         }
 
         @Override
-        public java.lang.String getDescriptor(Scope scope) {
+        protected java.lang.String resolveDescriptor(Scope scope) {
             return "D";
         }
 
@@ -151,7 +159,7 @@ public abstract class LiteralNode extends PrimaryNode {
         java.lang.String content;
 
         public String(java.lang.String content) {
-            super(Type.CHAR_TYPE);
+            super(Type.getType(java.lang.String.class));
             this.content = content;
         }
 
@@ -183,7 +191,7 @@ public abstract class LiteralNode extends PrimaryNode {
         }
 
         @Override
-        public java.lang.String getDescriptor(Scope scope) {
+        protected java.lang.String resolveDescriptor(Scope scope) {
             return "Ljava/lang/String;";
         }
 
@@ -247,7 +255,7 @@ public abstract class LiteralNode extends PrimaryNode {
         }
 
         @Override
-        public java.lang.String getDescriptor(Scope scope) {
+        protected java.lang.String resolveDescriptor(Scope scope) {
             return "Z";
         }
 
@@ -1,14 +1,13 @@
 package compiler.Nodes;
 
 import compiler.CodeGenerator.Scope;
-import compiler.Exceptions.CodeGeneratorException.UnexpectedError;
-import compiler.Exceptions.CodeGeneratorException.WrongType;
 import compiler.Exceptions.SemanticException.SemanticException;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 public class ParameterNode extends ASTNode {
@@ -41,6 +40,12 @@ public class ParameterNode extends ASTNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(identifier);
+        out.add(type);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -56,9 +61,8 @@ public class ParameterNode extends ASTNode {
     }
 
     @Override
-    public void accept(Object o, Scope scope) throws WrongType, UnexpectedError {
-        // a field has to be declared in the procedure's new scope (but is set to null, the value is set when doing a function call by pushing the arguments to the stack)
-        Scope.CVVDeclaration cvv = scope.declareCVV(identifier.name, new CVVNode.Var(identifier, type, null), false);
+    public void accept(Object o, Scope scope) {
+        // declared in the procedure's scope by the Binder (the value is pushed to the stack by the function call)
     }
     // -------------------------------------------------------------------------
 }
@@ -9,6 +9,7 @@ import compiler.Visitors.SemanticVisitor;
 import org.objectweb.asm.Type;
 
 import java.text.ParseException;
+import java.util.List;
 
 public abstract class PrimaryNode extends Expr {
     public PrimaryNode(Type descriptor) {
@@ -16,6 +17,10 @@ public abstract class PrimaryNode extends Expr {
     }
     // -------------------------------------------------------------------------
 
+    @Override
+    public void children(List<ASTNode> out) {
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -15,6 +15,7 @@ import org.objectweb.asm.MethodVisitor;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.*;
@@ -23,7 +24,15 @@ public class ProcedureNode extends ASTNode {
     public IdentifierNode identifier;
     public ArrayList<ParameterNode> params;
     public TypeNode returnType;
-    public BlockNode block;
+    private BlockNode block; // null until the body is parsed
+    private Body body;
+
+    /**
+     * Body of a procedure parsed the first time it is needed (see Parser.lazy()).
+     */
+    public interface Body {
+        BlockNode parse() throws ParseException;
+    }
 
     public ProcedureNode(IdentifierNode identifier, ArrayList<ParameterNode> params, TypeNode returnType,
             BlockNode block) {
@@ -33,9 +42,45 @@ public class ProcedureNode extends ASTNode {
         this.block = block;
     }
 
+    public ProcedureNode(IdentifierNode identifier, ArrayList<ParameterNode> params, TypeNode returnType,
+            Body body) {
+        this(identifier, params, returnType, (BlockNode) null);
+        this.body = body;
+    }
+
+    /**
+     * @return the block of the procedure, parsed now if it is lazy.
+     * @throws ParseException if the body of a lazy procedure has a syntax error.
+     */
+    public BlockNode getBlock() throws ParseException {
+        if (block == null && body != null) {
+            block = body.parse();
+            body = null;
+        }
+        return block;
+    }
+
+    /**
+     * @return true if the body of the procedure has been parsed.
+     */
+    public boolean isParsed() {
+        return body == null;
+    }
+
+    /**
+     * The block for the methods that can't throw a ParseException.
+     */
+    private BlockNode block() {
+        try {
+            return getBlock();
+        } catch (ParseException e) {
+            throw new IllegalStateException("Syntax error in the body of " + identifier + ".", e);
+        }
+    }
+
     @Override
     public String toString() {
-        return "(proc " + identifier + " " + params + " " + returnType + " " + block + ")";
+        return "(proc " + identifier + " " + params + " " + returnType + " " + block() + ")";
     }
 
     @Override
@@ -46,15 +91,23 @@ public class ProcedureNode extends ASTNode {
             return false;
         ProcedureNode that = (ProcedureNode) o;
         return Objects.equals(identifier, that.identifier) && Objects.equals(params, that.params)
-                && Objects.equals(returnType, that.returnType) && Objects.equals(block, that.block);
+                && Objects.equals(returnType, that.returnType) && Objects.equals(block(), that.block());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(identifier, params, returnType, block);
+        return Objects.hash(identifier, params, returnType, block());
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) throws ParseException {
+        out.add(identifier);
+        out.addAll(params);
+        out.add(returnType);
+        out.add(getBlock());
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -63,7 +116,7 @@ public class ProcedureNode extends ASTNode {
         for (ASTNode p : params)
             p.accept(visitor, depth);
         returnType.accept(visitor, depth);
-        block.accept(visitor, depth);
+        block().accept(visitor, depth);
     }
 
     @Override
@@ -78,6 +131,7 @@ public class ProcedureNode extends ASTNode {
         for (ParameterNode p : params)
             p.accept(visitor, newST);
         returnType.accept(visitor, st);
+        BlockNode block = getBlock();
         block.accept(visitor, newST);
 
         if (!(returnType instanceof TypeNode.Void) && !block.hasReturn())
@@ -90,19 +144,19 @@ public class ProcedureNode extends ASTNode {
         if (!(o instanceof ClassWriter cw))
             throw new WrongASMObject("Wrong argument", "Function called with not a ClassWriter as argument.");
 
-        Scope.ProcDeclaration pro = scope.declareProc(identifier.name, this);
-
         // public static {returnType} main ( {params} ) {}
         MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, this.identifier.name, getDescriptors(),
                 null, null);
 
         mv.visitCode();
 
-        Scope newScope = new Scope(block, scope, scope.getClassName());
-        for (ParameterNode p : params)
-            p.accept(mv, newScope);
-
-        block.accept(mv, newScope);
+        BlockNode block;
+        try {
+            block = getBlock();
+        } catch (ParseException e) {
+            throw new UnexpectedError("Syntax error", e.getMessage());
+        }
+        block.accept(mv, scope); // the variables of the block are bound to the procedure's scope (see Binder)
 
         if (returnType.getDescriptor().equals("V") && !block.hasReturn()) // call void return (typing "return;" isn't required)
             mv.visitInsn(RETURN);
@@ -3,6 +3,7 @@ package compiler.Nodes;
 import compiler.CodeGenerator.Scope;
 import compiler.Exceptions.CodeGeneratorException.CodeGeneratorException;
 import compiler.Exceptions.SemanticException.SemanticException;
+import compiler.SemanticAnalyzer.SType;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
@@ -10,7 +11,13 @@ import org.objectweb.asm.ClassWriter;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class ProgramNode extends ASTNode {
     ArrayList<CVVNode.Const> constants;
@@ -43,6 +50,108 @@ public class ProgramNode extends ASTNode {
         return procedures;
     }
 
+    /**
+     * Drops the procedures that can't be called from main or from the initializers of the constants and globals.
+     * Nothing is dropped from a program without main. The bodies of the procedures kept are parsed to find their
+     * calls, so with a lazy Parser the bodies of the dropped ones are never parsed. The procedures are reached in
+     * waves (main, then the ones it calls, ...) and the bodies of a wave are parsed in parallel.
+     *
+     * @throws ParseException the first syntax error (in source order) of the first wave whose bodies have one.
+     */
+    public void retainReachable() throws ParseException {
+        HashMap<String, ArrayList<ProcedureNode>> byName = new HashMap<>();
+        for (ProcedureNode p : procedures)
+            byName.computeIfAbsent(p.identifier.name, name -> new ArrayList<>()).add(p);
+        if (!byName.containsKey("main")) {
+            parse(procedures); // all of them are kept
+            return;
+        }
+
+        HashSet<String> reached = new HashSet<>();
+        ArrayList<ASTNode> pending = new ArrayList<>(constants);
+        pending.addAll(valVar);
+        reached.add("main");
+        ArrayList<ProcedureNode> wave = new ArrayList<>(byName.get("main"));
+        while (!wave.isEmpty()) {
+            parse(wave);
+            pending.addAll(wave);
+            wave = new ArrayList<>();
+            while (!pending.isEmpty()) {
+                ASTNode node = pending.remove(pending.size() - 1);
+                if (node == null)
+                    continue;
+                if (node instanceof FunctionCallNode call && reached.add(call.identifier.name)
+                        && byName.containsKey(call.identifier.name))
+                    wave.addAll(byName.get(call.identifier.name)); // walked once parsed, with the next wave
+                node.children(pending);
+            }
+        }
+        procedures.removeIf(p -> !reached.contains(p.identifier.name));
+    }
+
+    /**
+     * Parses the lazy bodies of procedures, in parallel if there are several.
+     */
+    private static void parse(List<ProcedureNode> wave) throws ParseException {
+        ArrayList<ProcedureNode> lazy = new ArrayList<>();
+        for (ProcedureNode p : wave)
+            if (!p.isParsed())
+                lazy.add(p);
+        lazy.sort(Comparator.comparingInt(p -> p.offset));
+        if (lazy.size() < 2) {
+            for (ProcedureNode p : lazy)
+                p.getBlock();
+            return;
+        }
+
+        ParseException[] errors = new ParseException[lazy.size()];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(lazy.size());
+        for (int i = 0; i < lazy.size(); i++) {
+            int index = i;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                try {
+                    lazy.get(index).getBlock(); // each body is parsed by a single task, on the shared tokens
+                } catch (ParseException e) {
+                    errors[index] = e;
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+        for (ParseException e : errors)
+            if (e != null)
+                throw e;
+    }
+
+    /**
+     * Checks a new version of a procedure (after an edit) and replaces the old one with it. As in a full check, the
+     * procedure only sees the globals and the procedures declared before it.
+     *
+     * @param index the position of the old procedure.
+     * @param st    the symbol table the whole program was checked with.
+     * @throws SemanticException if the new version doesn't check (the program and st are left unchanged).
+     */
+    public void replaceProcedure(int index, ProcedureNode updated, SymbolTable st)
+            throws ParseException, SemanticException {
+        ProcedureNode old = procedures.get(index);
+        ArrayList<SType> hidden = new ArrayList<>();
+        for (int i = index + 1; i < procedures.size(); i++)
+            hidden.add(st.remove(procedures.get(i).identifier));
+        SType type = st.remove(old.identifier);
+        try {
+            check(updated, new SemanticVisitor(), st);
+            procedures.set(index, updated);
+        } catch (ParseException | SemanticException e) {
+            st.remove(updated.identifier);
+            st.add(old.identifier, type);
+            throw e;
+        } finally {
+            for (int i = index + 1; i < procedures.size(); i++)
+                if (hidden.get(i - index - 1) != null)
+                    st.add(procedures.get(i).identifier, hidden.get(i - index - 1));
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder ret = new StringBuilder("// constants");
@@ -78,6 +187,14 @@ public class ProgramNode extends ASTNode {
 
     // -------------------------------------------------------------------------
 
+    @Override
+    public void children(List<ASTNode> out) {
+        out.addAll(constants);
+        out.addAll(records);
+        out.addAll(valVar);
+        out.addAll(procedures);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -96,13 +213,13 @@ public class ProgramNode extends ASTNode {
     public void accept(SemanticVisitor visitor, SymbolTable st) throws ParseException, SemanticException {
         visitor.visit(this, st);
         for (ASTNode c : constants)
-            c.accept(visitor, st);
+            check(c, visitor, st);
         for (ASTNode r : records)
-            r.accept(visitor, st);
+            check(r, visitor, st);
         for (CVVNode v : valVar)
-            v.accept(visitor, st);
+            check(v, visitor, st);
         for (ProcedureNode p : procedures)
-            p.accept(visitor, st);
+            check(p, visitor, st);
 
     }
 
@@ -112,13 +229,13 @@ public class ProgramNode extends ASTNode {
             return; // todo throw error
 
         for (CVVNode.Const c : constants)
-            c.accept(cw, scope);
+            generate(c, cw, scope);
         for (RecordDeclarationNode r : records)
-            r.accept(cw, scope);
+            generate(r, cw, scope);
         for (CVVNode v : valVar)
-            v.accept(cw, scope);
+            generate(v, cw, scope);
         for (ProcedureNode p : procedures)
-            p.accept(cw, scope);
+            generate(p, cw, scope);
     }
 
     // -------------------------------------------------------------------------
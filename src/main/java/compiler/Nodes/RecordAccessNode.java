@@ -7,7 +7,6 @@ import compiler.Exceptions.CodeGeneratorException.UnexpectedError;
 import compiler.Exceptions.CodeGeneratorException.WrongASMObject;
 import compiler.Exceptions.CodeGeneratorException.WrongType;
 import compiler.Exceptions.SemanticException.SemanticException;
-import compiler.SemanticAnalyzer.SemanticAnalyzer;
 import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
@@ -15,6 +14,7 @@ import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.*;
@@ -22,6 +22,8 @@ import static org.objectweb.asm.Opcodes.*;
 public class RecordAccessNode extends PrimaryNode {
     public ASTNode record; // identifier or array access
     public IdentifierNode field;
+    public Scope.RecordDeclaration recordType; // record of the accessed variable, set by the Binder
+    public String fieldDescriptor; // descriptor of the field in this record, set by the Binder
 
     public RecordAccessNode(ASTNode record, IdentifierNode field) {
         super(null); // TODO transform to right type once known
@@ -58,26 +60,23 @@ public class RecordAccessNode extends PrimaryNode {
     }
 
     @Override
-    public String getDescriptor(Scope scope) throws WrongType, UnexpectedError {
-        // get the type (should be a record type)
-        TypeNode type;
-        if (record instanceof IdentifierNode idn)
-            type = scope.cvvLookup(idn.name).declaration.type;
-        else if (record instanceof ArrayAccessNode aan)
-            type = scope.cvvLookup(aan.identifier.name).declaration.type;
-        else
-            throw new UnexpectedError("Not a record", "Unexpected record access node type: " + record.getClass());
-
-        if (type instanceof TypeNode.Array tna)
-            type = tna.baseType;
-        if (!(type instanceof TypeNode.Identifier tni))
-            throw new WrongType("Expected record", "Got " + type + " instead.");
-
-        return scope.recordLookup(tni.identifier.name).declaration.getFieldDescriptor(field.name);
+    protected String resolveDescriptor(Scope scope) throws WrongType, UnexpectedError {
+        if (recordType == null)
+            throw new WrongType("Expected record", "Got " + record + " instead.");
+        if (fieldDescriptor == null)
+            throw new UnexpectedError("Field not found", "Could not find field with name " + field.name
+                    + " in record " + recordType.declaration.identifier.name + ".");
+        return fieldDescriptor;
     }
 
     // -------------------------------------------------------------------------
 
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(record);
+        out.add(field);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -90,7 +89,7 @@ public class RecordAccessNode extends PrimaryNode {
         visitor.visit(this, st);
 
         // TODO check if this updates correctly when the SV is run
-        descriptor = CodeGenerator.nodeToASMType(SemanticAnalyzer.getType(this, st));
+        descriptor = CodeGenerator.nodeToASMType(getType(st));
 
         record.accept(visitor, st);
         field.accept(visitor, st);
@@ -103,8 +102,6 @@ public class RecordAccessNode extends PrimaryNode {
 
             //we can have defined a global variable using a record, and then define another variable using  the record access
             if (record instanceof IdentifierNode idn) { //we are just accesing to a field from a record already define  (valentin.age) for example
-                Scope.RecordDeclaration recordDeclaration = scope.recordLookup(idn.name);
-
                 //TODO how can we push a predefined variable which is a record onto the stack with the CW?
                 //mv.visitVarInsn(ALOAD, recordDeclaration.index);
                 cw.visitField(GETFIELD, "java/lang/Object", field.descriptor.getDescriptor(), null,
@@ -120,16 +117,17 @@ public class RecordAccessNode extends PrimaryNode {
         } else if (o instanceof MethodVisitor mv) {
 
             if (record instanceof IdentifierNode idn) { //we are just accesing to a field from a record already define  (valentin.age) for example
-                Scope.CVVDeclaration cvv = scope.cvvLookup(idn.name);
+                Scope.CVVDeclaration cvv = idn.binding;
 
-                if (!(cvv.declaration.type instanceof TypeNode.Identifier recType))
+                if (!(cvv.declaration.type instanceof TypeNode.Identifier))
                     throw new WrongType("Wrong type", "RecordAccess node called with not a record type");
-                Scope.RecordDeclaration rec = scope.recordLookup(recType.identifier.name);
+                Scope.RecordDeclaration rec = recordType;
 
-                String desc = rec.declaration.getFieldDescriptor(field.name);
+                String desc = resolveDescriptor(scope);
 
                 if (cvv.isGlobal) {
-                    mv.visitFieldInsn(GETSTATIC, "Program", idn.name, "L" + rec.declaration.identifier.name + ";");
+                    mv.visitFieldInsn(GETSTATIC, cvv.scope.getClassName(), idn.name,
+                            "L" + rec.declaration.identifier.name + ";");
                     mv.visitFieldInsn(GETFIELD, rec.declaration.identifier.name, field.name, desc);
                 } else {
                     mv.visitVarInsn(ALOAD, cvv.index);
@@ -138,7 +136,7 @@ public class RecordAccessNode extends PrimaryNode {
 
             } else if (record instanceof ArrayAccessNode aan) { //we are accessing to an array element which contains a record (persons[0].name) for example
 
-                Scope.CVVDeclaration cvv = scope.cvvLookup(aan.identifier.name);
+                Scope.CVVDeclaration cvv = aan.identifier.binding;
 
                 //we push the array onto the stack
                 mv.visitVarInsn(ALOAD, cvv.index);
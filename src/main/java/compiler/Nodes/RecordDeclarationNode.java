@@ -16,6 +16,7 @@ import org.objectweb.asm.Opcodes;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.*;
@@ -51,6 +52,12 @@ public class RecordDeclarationNode extends ASTNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(identifier);
+        out.addAll(fields);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -74,8 +81,6 @@ public class RecordDeclarationNode extends ASTNode {
             throw new WrongASMObject("Wrong argument", "Function called with not a ClassWriter as argument.");
         }
 
-        Scope.RecordDeclaration rec = scope.declareRec(this);
-
         cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
         cw.visit(Opcodes.V1_8, ACC_RECORD, identifier.name, null, "java/lang/Object", null);
 
@@ -8,8 +8,10 @@ import compiler.SemanticAnalyzer.SymbolTable;
 import compiler.Visitors.PrintVisitor;
 import compiler.Visitors.SemanticVisitor;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.IRETURN;
@@ -49,6 +51,11 @@ public class ReturnNode extends ASTNode {
     }
 
     // -------------------------------------------------------------------------
+    @Override
+    public void children(List<ASTNode> out) {
+        out.add(returned);
+    }
+
     @Override
     public void accept(PrintVisitor visitor, int depth) {
         visitor.visit(this, depth);
@@ -72,7 +79,7 @@ public class ReturnNode extends ASTNode {
             mv.visitInsn(RETURN); // return no value
         else {
             returned.accept(mv, scope);
-            mv.visitInsn(returned.descriptor.getOpcode(IRETURN));
+            mv.visitInsn(Type.getType(returned.getDescriptor(scope)).getOpcode(IRETURN));
         }
     }
     // -------------------------------------------------------------------------
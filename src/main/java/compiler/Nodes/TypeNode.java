@@ -11,6 +11,7 @@ import compiler.Visitors.SemanticVisitor;
 import org.objectweb.asm.MethodVisitor;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Objects;
 
 public abstract class TypeNode extends ASTNode {
@@ -18,6 +19,10 @@ public abstract class TypeNode extends ASTNode {
         public Token token;
 
         // -------------------------------------------------------------------------
+        @Override
+        public void children(List<ASTNode> out) {
+        }
+
         @Override
         public void accept(PrintVisitor visitor, int depth) {
             visitor.visit(this, depth);
@@ -56,7 +61,7 @@ public abstract class TypeNode extends ASTNode {
             switch (token) {
                 case INTTYPE, REALTYPE, STRINGTYPE, BOOLTYPE -> this.token = token;
                 default ->
-                    throw new ParseException("Basic TypeNode created but not with int, real, string or bool.", 0);
+                    throw new ParseException("Basic TypeNode created but not with int, real, string or bool.", -1);
             }
         }
 
@@ -86,6 +91,11 @@ public abstract class TypeNode extends ASTNode {
         public IdentifierNode identifier;
 
         // -------------------------------------------------------------------------
+        @Override
+        public void children(List<ASTNode> out) {
+            out.add(identifier);
+        }
+
         @Override
         public void accept(PrintVisitor visitor, int depth) {
             visitor.visit(this, depth);
@@ -141,6 +151,11 @@ public abstract class TypeNode extends ASTNode {
         }
 
         // -------------------------------------------------------------------------
+        @Override
+        public void children(List<ASTNode> out) {
+            out.add(baseType);
+        }
+
         @Override
         public void accept(PrintVisitor visitor, int depth) {
             visitor.visit(this, depth);
@@ -219,6 +234,10 @@ public abstract class TypeNode extends ASTNode {
         }
 
         // -------------------------------------------------------------------------
+        @Override
+        public void children(List<ASTNode> out) {
+        }
+
         @Override
         public void accept(PrintVisitor visitor, int depth) {
             visitor.visit(this, depth);
@@ -0,0 +1,131 @@
+package compiler.Parser;
+
+import compiler.Exceptions.LexerException;
+import compiler.Lexer.LB;
+import compiler.Lexer.Token;
+import compiler.Lexer.TokenBuffer;
+import compiler.Nodes.ProcedureNode;
+import compiler.Nodes.ProgramNode;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses the procedures of a fully lexed program in parallel. A 'proc' can only start a top-level declaration and
+ * its body is delimited by braces, so a prescan that matches the braces finds the token span of every procedure.
+ * Each span is then parsed on a ForkJoin worker by its own Parser, and the nodes are assembled in source order.
+ * If the prescan or a parsed span doesn't match the expected structure, the procedures are parsed sequentially
+ * instead, so the result (and the first error reported) is always the one of the sequential Parser.
+ */
+public final class ParallelParser {
+    private ParallelParser() {
+    }
+
+    /** One procedure parsed by a worker. */
+    private static final class Span {
+        final int start;
+        final int end; // index of the token after the closing brace
+        ProcedureNode procedure;
+        int stop; // index where the parser stopped
+        Exception error;
+
+        Span(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Parses a whole program, its procedures in parallel.
+     *
+     * @param tokens the tokens of the program, ending with an EOF token.
+     * @return the AST of the program.
+     */
+    public static ProgramNode parse(TokenBuffer tokens) throws ParseException, LexerException {
+        return new Parser(tokens, true).getAST();
+    }
+
+    /**
+     * Finds the spans of the procedures from a token until the EOF.
+     *
+     * @return the start of each procedure followed by the index of the EOF token, or null if the tokens aren't a
+     * sequence of brace-balanced procedures.
+     */
+    static int[] prescan(TokenBuffer tokens, int from) {
+        int[] starts = new int[16];
+        int count = 0;
+        int i = from;
+        while (tokens.token(i) == Token.PROC) {
+            if (count == starts.length)
+                starts = Arrays.copyOf(starts, count * 2);
+            starts[count++] = i;
+
+            int depth = 0;
+            boolean opened = false;
+            for (i++; ; i++) {
+                Token token = tokens.token(i);
+                if (token == Token.EOF || token == Token.PROC)
+                    return null;
+                if (token == Token.OPENCURLYBRACKETS) {
+                    depth++;
+                    opened = true;
+                } else if (token == Token.CLOSECURLYBRACKETS && --depth <= 0) {
+                    if (!opened || depth < 0)
+                        return null;
+                    i++;
+                    break;
+                }
+            }
+        }
+        if (tokens.token(i) != Token.EOF)
+            return null;
+
+        int[] spans = Arrays.copyOf(starts, count + 1);
+        spans[count] = i;
+        return spans;
+    }
+
+    /**
+     * Parses the procedures found by prescan().
+     *
+     * @return the procedures in source order, or null if a span didn't parse as exactly one procedure.
+     * @throws ParseException the first error of the procedures, in source order.
+     */
+    static ArrayList<ProcedureNode> parseProcedures(TokenBuffer tokens, int[] spans)
+            throws ParseException, LexerException {
+        int count = spans.length - 1;
+        List<ForkJoinTask<Span>> tasks = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            Span span = new Span(spans[p], spans[p + 1]);
+            tasks.add(ForkJoinPool.commonPool().submit(() -> parse(tokens, span)));
+        }
+
+        ArrayList<ProcedureNode> procedures = new ArrayList<>(count);
+        for (ForkJoinTask<Span> task : tasks) {
+            Span span = task.join();
+            if (span.error instanceof ParseException e)
+                throw e;
+            if (span.error instanceof LexerException e)
+                throw e;
+            if (span.error != null || span.stop != span.end)
+                return null;
+            procedures.add(span.procedure);
+        }
+        return procedures;
+    }
+
+    private static Span parse(TokenBuffer tokens, Span span) {
+        LB lb = new LB(tokens, span.start);
+        try {
+            span.procedure = new Parser(lb).parseProcedure();
+            span.stop = lb.cursor();
+        } catch (Exception e) {
+            span.error = e;
+        }
+        return span;
+    }
+}
@@ -0,0 +1,42 @@
+package compiler.Parser;
+
+import compiler.Lexer.Token;
+import compiler.Nodes.ASTNode;
+
+/**
+ * Receives the events of a parse that doesn't build the AST (see Parser.parse(ParseListener)), for the tools that
+ * only need the declarations and the call sites. The events come in source order; the offsets are the ones of the
+ * nodes. Every method does nothing by default.
+ */
+public interface ParseListener {
+    /**
+     * A const, record, val or var declaration (global or local).
+     * @param kind Token.CONST, RECORD, VAL or VAR.
+     */
+    default void declaration(Token kind, String name, int offset) {
+    }
+
+    default void startProcedure(String name, int offset) {
+    }
+
+    /**
+     * @param end offset of the closing brace of the procedure.
+     */
+    default void endProcedure(String name, int end) {
+    }
+
+    default void startStatement(int offset) {
+    }
+
+    /**
+     * @param kind the class of the node the statement would be.
+     */
+    default void endStatement(Class<? extends ASTNode> kind) {
+    }
+
+    /**
+     * A procedure call, in a statement or in an expression (the arguments come after it).
+     */
+    default void call(String name, int offset) {
+    }
+}
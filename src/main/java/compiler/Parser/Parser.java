@@ -3,388 +3,647 @@ package compiler.Parser;
 import compiler.Exceptions.LexerException;
 import compiler.Lexer.LB;
 import compiler.Lexer.Lexer;
+import compiler.Lexer.LineMap;
 import compiler.Lexer.Symbol;
 import compiler.Lexer.Token;
+import compiler.Lexer.TokenBuffer;
 import compiler.Nodes.*;
 import compiler.Visitors.PrintVisitor;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.List;
 
 public class Parser {
+    // levels of the binary operators, from the tightest to the loosest
+    private static final int ARITH_TERM = 2;
+    private static final int BOOL_FACTOR = 3;
+    private static final int BOOL_TERM = 4;
+    private static final int EXPRESSION = 5;
+
+    private static final int PARALLEL_THRESHOLD = 1 << 16; // tokens of the programs parsed in parallel
+
     private final LB lb;
+    private final TokenBuffer tokens; // all the tokens, null when they are streamed from the Lexer
+    private final boolean parallel;
+    private final boolean lazy; // the bodies of the procedures are parsed on demand
+    private List<ParseException> diagnostics; // null unless the parser recovers from the syntax errors
+    private ParseListener listener; // null unless the parser emits events instead of building the AST
+    private int blockEnd; // offset of the closing brace of the last block parsed
 
     public Parser(Lexer lexer) {
         this.lb = new LB(lexer);
+        this.tokens = null;
+        this.parallel = false;
+        this.lazy = false;
+    }
+
+    /**
+     * Parses a fully lexed program. The procedures of large programs are parsed in parallel (see ParallelParser).
+     */
+    public Parser(TokenBuffer tokens) {
+        this(tokens, tokens.size() >= PARALLEL_THRESHOLD);
+    }
+
+    Parser(TokenBuffer tokens, boolean parallel) {
+        this(tokens, parallel, false);
+    }
+
+    private Parser(TokenBuffer tokens, boolean parallel, boolean lazy) {
+        this.lb = new LB(tokens);
+        this.tokens = tokens;
+        this.parallel = parallel;
+        this.lazy = lazy;
+    }
+
+    /**
+     * Parses a fully lexed program, but only the signatures of its procedures: the body of a procedure is skipped
+     * (its braces are matched) and only parsed the first time its block is asked for (see ProcedureNode.getBlock()
+     * and ProgramNode.retainReachable()). The syntax errors of a body are thrown at that time.
+     */
+    public static Parser lazy(TokenBuffer tokens) {
+        return new Parser(tokens, false, true);
+    }
+
+    /**
+     * Parses a part of a program (used by the ParallelParser and the CompilationSession).
+     */
+    public Parser(LB lb) {
+        this.lb = lb;
+        this.tokens = null;
+        this.parallel = false;
+        this.lazy = false;
     }
 
     public ProgramNode getAST() throws ParseException, LexerException {
         return parseProgram();
     }
 
+    /**
+     * Parses the program without stopping at the first syntax error (panic mode): after an error, the tokens are
+     * skipped up to the next ';', '}' or declaration keyword, and the parsing goes on from there. The statements and
+     * declarations holding an error are left out of the AST.
+     *
+     * @param diagnostics receives every syntax error, in source order (the first one is the one getAST() throws).
+     * @return the partial AST of the program.
+     */
+    public ProgramNode getAST(List<ParseException> diagnostics) throws LexerException {
+        this.diagnostics = diagnostics;
+        try {
+            return parseProgram();
+        } catch (ParseException e) {
+            throw new IllegalStateException(e); // never thrown while recovering
+        } finally {
+            this.diagnostics = null;
+        }
+    }
+
+    /**
+     * Parses the program without building its AST: the declarations, procedures, statements and calls are sent to a
+     * listener as they are parsed, and their nodes are dropped. Only the nodes of the current statement exist at a
+     * time, so with a Parser on a Lexer (streamed tokens) a program of any size is parsed in a bounded memory.
+     */
+    public void parse(ParseListener listener) throws ParseException, LexerException {
+        this.listener = listener;
+        try {
+            parseProgram();
+        } finally {
+            this.listener = null;
+        }
+    }
+
+    /**
+     * @return the line starts of the source, to locate the offsets of the nodes and of the exceptions.
+     */
+    public LineMap lines() throws LexerException {
+        return lb.lines();
+    }
+
     public static void printAST(ProgramNode node) {
         PrintVisitor visitor = new PrintVisitor();
         System.out.print("------   AST   ------\n");
         node.accept(visitor, 0);
     }
 
+    /**
+     * Sets the offset of the first token of a node.
+     */
+    private static <T extends ASTNode> T at(int offset, T node) {
+        node.offset = offset;
+        return node;
+    }
+
+    private IdentifierNode parseIdentifier() throws ParseException, LexerException {
+        int offset = lb.offset();
+        return at(offset, new IdentifierNode(lb.matchContent(Token.IDENTIFIER)));
+    }
+
     private ProgramNode parseProgram() throws ParseException, LexerException {
         ArrayList<CVVNode.Const> constants = new ArrayList<>();
-        while (lb.peek() != null && lb.peek().token() == Token.CONST)
-            constants.add(parseConstDeclaration());
-
         ArrayList<RecordDeclarationNode> records = new ArrayList<>();
-        while (lb.peek() != null && lb.peek().token() == Token.RECORD)
-            records.add(parseRecordDeclaration());
-
         ArrayList<CVVNode> valVar = new ArrayList<>();
-        while (lb.peek() != null && (lb.peek().token() == Token.VAL || lb.peek().token() == Token.VAR)) {
-            if (lb.peek().token() == Token.VAL)
-                valVar.add(parseValue());
-            else
-                valVar.add(parseVariable());
-        }
-
         ArrayList<ProcedureNode> procedures = new ArrayList<>();
-        while (lb.peek() != null && lb.peek().token() == Token.PROC)
-            procedures.add(parseProcedure());
 
-        Symbol next = lb.peek();
-        try {
-            lb.consume(Token.EOF); // end of the program
-        } catch (ParseException e) {
-            throw new ParseException(
+        while (true) {
+            while (lb.peekToken() == Token.CONST) {
+                int start = lb.offset();
+                try {
+                    keep(constants, parseConstDeclaration());
+                } catch (ParseException e) {
+                    recover(e, start, false);
+                }
+            }
+
+            while (lb.peekToken() == Token.RECORD) {
+                int start = lb.offset();
+                try {
+                    keep(records, parseRecordDeclaration());
+                } catch (ParseException e) {
+                    recover(e, start, false);
+                }
+            }
+
+            while (lb.peekToken() == Token.VAL || lb.peekToken() == Token.VAR) {
+                int start = lb.offset();
+                try {
+                    if (lb.peekToken() == Token.VAL)
+                        keep(valVar, parseValue());
+                    else
+                        keep(valVar, parseVariable());
+                } catch (ParseException e) {
+                    recover(e, start, false);
+                }
+            }
+
+            ArrayList<ProcedureNode> parsed = parallel && listener == null ? parseProceduresParallel() : null;
+            if (parsed != null)
+                procedures.addAll(parsed);
+            else {
+                while (lb.peekToken() == Token.PROC) {
+                    int start = lb.offset();
+                    try {
+                        keep(procedures, parseProcedure());
+                    } catch (ParseException e) {
+                        recover(e, start, false);
+                    }
+                }
+            }
+
+            if (lb.peekToken() == Token.EOF) // end of the program
+                break;
+            Symbol next = lb.peek();
+            recover(new ParseException(
                     "The parser encountered an unexpected " + next.token() + " token: '" + next.content() + "'.",
-                    0);
+                    next.offset()), next.offset(), false);
         }
 
+        lb.consume(Token.EOF);
         return new ProgramNode(constants, records, valVar, procedures);
     }
 
+    /**
+     * Adds a node to the AST, unless the parser only emits events.
+     */
+    private <T extends ASTNode> void keep(List<T> nodes, T node) {
+        if (listener == null)
+            nodes.add(node);
+    }
+
+    /**
+     * Records a syntax error and skips the tokens up to a point where the parsing can go on, or throws the error if
+     * the parser doesn't recover. A block met while skipping is skipped as a whole.
+     *
+     * @param start     offset of the first token of the statement or declaration holding the error.
+     * @param statement true to stop after a ';' or a block, or before a '}' or a declaration keyword; false to stop
+     *                  before a declaration keyword only.
+     * @return false if the error is at the start of a statement that can't go on (a declaration keyword or the EOF).
+     */
+    private boolean recover(ParseException e, int start, boolean statement) throws ParseException, LexerException {
+        if (diagnostics == null)
+            throw e;
+        diagnostics.add(e);
+
+        if (lb.offset() == start) { // nothing consumed: skip at least one token
+            Token token = lb.peekToken();
+            if (token == Token.EOF || (statement && resumes(token)))
+                return false;
+            lb.getToken();
+        }
+
+        int depth = 0;
+        while (true) {
+            Token token = lb.peekToken();
+            if (token == Token.EOF || (depth == 0 && resumes(token)))
+                return true;
+            if (token == Token.OPENCURLYBRACKETS)
+                depth++;
+            else if (token == Token.CLOSECURLYBRACKETS) {
+                if (depth == 0 && statement) // end of the enclosing block
+                    return true;
+                if (depth > 0 && --depth == 0 && statement) { // end of the statement's block
+                    lb.getToken();
+                    return true;
+                }
+            } else if (token == Token.SEMICOLON && depth == 0 && statement) {
+                lb.getToken();
+                return true;
+            }
+            lb.getToken();
+        }
+    }
+
+    /**
+     * @return true if a top-level declaration (or a local one, for val and var) can start at the token.
+     */
+    private static boolean resumes(Token token) {
+        return switch (token) {
+            case PROC, RECORD, CONST, VAL, VAR -> true;
+            default -> false;
+        };
+    }
+
     private CVVNode.Const parseConstDeclaration() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.CONST);
-        IdentifierNode identifier = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+        IdentifierNode identifier = parseIdentifier();
+        if (listener != null)
+            listener.declaration(Token.CONST, identifier.name, offset);
         TypeNode.Base baseType = parseBaseType();
         lb.consume(Token.ASSIGNMENT);
         Expr expression = parseExpression();
         lb.consume(Token.SEMICOLON);
-        return new CVVNode.Const(identifier, baseType, expression);
+        return at(offset, new CVVNode.Const(identifier, baseType, expression));
     }
 
     private CVVNode.Val parseValue() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.VAL);
-        IdentifierNode identifier = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+        IdentifierNode identifier = parseIdentifier();
+        if (listener != null)
+            listener.declaration(Token.VAL, identifier.name, offset);
         TypeNode.Base baseType = parseBaseType();
         lb.consume(Token.ASSIGNMENT);
         Expr expression = parseExpression();
         lb.consume(Token.SEMICOLON);
-        return new CVVNode.Val(identifier, baseType, expression);
+        return at(offset, new CVVNode.Val(identifier, baseType, expression));
     }
 
     private CVVNode.Var parseVariable() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.VAR);
-        IdentifierNode identifier = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+        IdentifierNode identifier = parseIdentifier();
+        if (listener != null)
+            listener.declaration(Token.VAR, identifier.name, offset);
         TypeNode type = parseType();
         lb.consume(Token.ASSIGNMENT);
         Expr expression = parseExpression();
         lb.consume(Token.SEMICOLON);
-        return new CVVNode.Var(identifier, type, expression);
+        return at(offset, new CVVNode.Var(identifier, type, expression));
     }
 
     private RecordDeclarationNode parseRecordDeclaration() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.RECORD);
-        IdentifierNode identifier = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+        IdentifierNode identifier = parseIdentifier();
+        if (listener != null)
+            listener.declaration(Token.RECORD, identifier.name, offset);
         lb.consume(Token.OPENCURLYBRACKETS);
 
         ArrayList<FieldDeclarationNode> fields = new ArrayList<>();
-        while (lb.peek().token() != Token.CLOSECURLYBRACKETS) {
+        while (lb.peekToken() != Token.CLOSECURLYBRACKETS) {
             fields.add(parseFieldDeclaration());
         }
 
         lb.consume(Token.CLOSECURLYBRACKETS);
-        return new RecordDeclarationNode(identifier, fields);
+        return at(offset, new RecordDeclarationNode(identifier, fields));
     }
 
     private FieldDeclarationNode parseFieldDeclaration() throws ParseException, LexerException {
-        IdentifierNode identifier = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+        int offset = lb.offset();
+        IdentifierNode identifier = parseIdentifier();
         TypeNode type = parseType();
         lb.consume(Token.SEMICOLON);
-        return new FieldDeclarationNode(identifier, type);
+        return at(offset, new FieldDeclarationNode(identifier, type));
     }
 
     private TypeNode parseType() throws ParseException, LexerException { // TODO type tests still ok after <base-type>[] arrays?
-        Token token = lb.peek().token();
+        int offset = lb.offset();
+        Token token = lb.peekToken();
 
         switch (token) {
             case INTTYPE, REALTYPE, STRINGTYPE, BOOLTYPE -> {
                 TypeNode.Base baseType = parseBaseType();
-                if (lb.peek().token() == Token.OPENBRACKETS) {
+                if (lb.peekToken() == Token.OPENBRACKETS) {
                     lb.consume(Token.OPENBRACKETS);
                     lb.consume(Token.CLOSEBRACKETS);
-                    return new TypeNode.Array(baseType);
+                    return at(offset, new TypeNode.Array(baseType));
                 } else
                     return baseType;
             }
             case IDENTIFIER -> {
-                return new TypeNode.Identifier(new IdentifierNode(lb.match(Token.IDENTIFIER).content()));
+                return at(offset, new TypeNode.Identifier(parseIdentifier()));
             }
         }
 
-        throw new ParseException("Unexpected type (next: " + lb.peek() + ").", 0);
+        throw new ParseException("Unexpected type (next: " + lb.peek() + ").", offset);
     }
 
     private TypeNode.Base parseBaseType() throws ParseException, LexerException {
-        Token token = lb.get().token();
+        int offset = lb.offset();
+        Token token = lb.getToken();
 
         if (token == Token.INTTYPE || token == Token.REALTYPE || token == Token.STRINGTYPE || token == Token.BOOLTYPE)
-            return new TypeNode.Base(token);
+            return at(offset, new TypeNode.Base(token));
 
-        throw new ParseException("Expected base type (int | real | string | bool) but got " + token + ".", 0);
+        throw new ParseException("Expected base type (int | real | string | bool) but got " + token + ".", offset);
     }
 
     /**
-     * Builds a tree of bool-term nodes in Or, or And nodes.
-     *     OR
-     *   /   \
-     * bt     AND
+     * Parses an expression by precedence climbing: operators of the same level are read in a loop and build
+     * left-associative trees, so the parser only recurses when an operator binds tighter than the previous one.
+     *        OR
      *       /   \
-     *     bt     bt
-     * TODO:
-     *        AND
-     *       /   \
-     *     OR     bt
-     *   /   \
-     * bt     bt
-     * @return <ExpressionNode> ::= <BoolTermNode> ( ( Token.OR | Token.AND ) <ExpressionNode> )?
+     *     AND    bt
+     *    /   \
+     *  bt     bt
+     * The tree only holds operator nodes and leaves: the single-child ExpressionNode, BoolTermNode, BoolFactorNode,
+     * ArithTermNode and ArithFactorNode wrappers of the grammar levels are never built.
+     * @return <ExpressionNode> ::= <BoolTermNode> ( ( Token.OR | Token.AND ) <BoolTermNode> )*
      * @throws ParseException if unexpected token.
      */
-    private ExpressionNode parseExpression() throws ParseException, LexerException {
-        BoolTermNode left = parseBoolTerm();
-
-        if (lb.peek() == null)
-            return new ExpressionNode(left);
-
-        switch (lb.peek().token()) {
-            case OR:
-                lb.consume(Token.OR);
-                return new ExpressionNode.Or(left, parseExpression());
-            case AND:
-                lb.consume(Token.AND);
-                return new ExpressionNode.And(left, parseExpression());
-        }
-        return new ExpressionNode(left);
-    }
-
-    private BoolTermNode parseBoolTerm() throws ParseException, LexerException {
-        BoolFactorNode left = parseBoolFactor();
-
-        if (lb.peek() == null)
-            return new BoolTermNode(left);
-
-        switch (lb.peek().token()) {
-            case LOWER:
-                lb.consume(Token.LOWER); // <
-                return new BoolTermNode.Lower(left, parseBoolTerm());
-            case LEQ:
-                lb.consume(Token.LEQ); // <=
-                return new BoolTermNode.LEQ(left, parseBoolTerm());
-            case GREATER:
-                lb.consume(Token.GREATER); // >
-                return new BoolTermNode.Greater(left, parseBoolTerm());
-            case GEQ:
-                lb.consume(Token.GEQ); // >=
-                return new BoolTermNode.GEQ(left, parseBoolTerm());
-            case EQUAL:
-                lb.consume(Token.EQUAL); // ==
-                return new BoolTermNode.Equal(left, parseBoolTerm());
-            case DIFFERENT:
-                lb.consume(Token.DIFFERENT); // <>
-                return new BoolTermNode.Different(left, parseBoolTerm());
-        }
-
-        return new BoolTermNode(left); // no match
+    private PrimaryNode parseExpression() throws ParseException, LexerException {
+        return parseOperators(EXPRESSION);
     }
 
-    private BoolFactorNode parseBoolFactor() throws ParseException, LexerException {
-        ArithTermNode left = parseArithTerm();
-
-        if (lb.peek() == null)
-            return new BoolFactorNode(left);
-
-        switch (lb.peek().token()) {
-            case ADDITION:
-                lb.consume(Token.ADDITION);
-                return new BoolFactorNode.Addition(left, parseBoolFactor());
-            case SUBTRACTION:
-                lb.consume(Token.SUBTRACTION);
-                return new BoolFactorNode.Subtraction(left, parseBoolFactor());
-        }
-        return new BoolFactorNode(left);
+    /**
+     * @return the level of a binary operator (the node class it builds), or -1 if the token isn't one.
+     */
+    private static int level(Token token) {
+        return switch (token) {
+            case MULTIPLICATION, DIVISION, MODULO -> ARITH_TERM;
+            case ADDITION, SUBTRACTION -> BOOL_FACTOR;
+            case LOWER, LEQ, GREATER, GEQ, EQUAL, DIFFERENT -> BOOL_TERM;
+            case OR, AND -> EXPRESSION;
+            default -> -1;
+        };
     }
 
-    private ArithTermNode parseArithTerm() throws ParseException, LexerException {
-        ArithFactorNode left = parseFactorTerm();
-
-        if (lb.peek() == null)
-            return new ArithTermNode(left);
-
-        switch (lb.peek().token()) {
-            case MULTIPLICATION:
-                lb.consume(Token.MULTIPLICATION);
-                return new ArithTermNode.Multiplication(left, parseArithTerm());
-            case DIVISION:
-                lb.consume(Token.DIVISION);
-                return new ArithTermNode.Division(left, parseArithTerm());
-            case MODULO:
-                lb.consume(Token.MODULO);
-                return new ArithTermNode.Modulo(left, parseArithTerm());
+    /**
+     * Parses operands joined by binary operators up to a level.
+     * @param maxLevel level of the loosest operator to read.
+     * @return the operand, or the last operator node built.
+     */
+    private PrimaryNode parseOperators(int maxLevel) throws ParseException, LexerException {
+        int offset = lb.offset();
+        PrimaryNode left = parseFactorTerm();
+
+        int level;
+        while ((level = level(lb.peekToken())) > 0 && level <= maxLevel) {
+            Token operator = lb.getToken();
+            PrimaryNode right = parseOperators(level - 1); // only tighter operators: left-associative
+            left = at(offset, binary(operator, left, right));
         }
-        return new ArithTermNode(left);
+        return left;
+    }
+
+    private static PrimaryNode binary(Token operator, Expr left, Expr right) {
+        return switch (operator) {
+            case MULTIPLICATION -> new ArithTermNode.Multiplication(left, right);
+            case DIVISION -> new ArithTermNode.Division(left, right);
+            case MODULO -> new ArithTermNode.Modulo(left, right);
+            case ADDITION -> new BoolFactorNode.Addition(left, right);
+            case SUBTRACTION -> new BoolFactorNode.Subtraction(left, right);
+            case LOWER -> new BoolTermNode.Lower(left, right);
+            case LEQ -> new BoolTermNode.LEQ(left, right);
+            case GREATER -> new BoolTermNode.Greater(left, right);
+            case GEQ -> new BoolTermNode.GEQ(left, right);
+            case EQUAL -> new BoolTermNode.Equal(left, right);
+            case DIFFERENT -> new BoolTermNode.Different(left, right);
+            case OR -> new ExpressionNode.Or(left, right);
+            case AND -> new ExpressionNode.And(left, right);
+            default -> throw new IllegalArgumentException("Not a binary operator: " + operator);
+        };
     }
 
-    private ArithFactorNode parseFactorTerm() throws ParseException, LexerException {
-        switch (lb.peek().token()) {
+    private PrimaryNode parseFactorTerm() throws ParseException, LexerException {
+        int offset = lb.offset();
+        switch (lb.peekToken()) {
             case ADDITION:
                 lb.consume(Token.ADDITION);
-                return new ArithFactorNode.Positive(parsePrimary());
+                return at(offset, new ArithFactorNode.Positive(parsePrimary()));
             case SUBTRACTION:
                 lb.consume(Token.SUBTRACTION);
-                return new ArithFactorNode.Negative(parsePrimary());
+                return at(offset, new ArithFactorNode.Negative(parsePrimary()));
         }
-        return new ArithFactorNode(parsePrimary());
+        return parsePrimary();
     }
 
     private PrimaryNode parsePrimary() throws ParseException, LexerException {
-        switch (lb.peek().token()) {
+        switch (lb.peekToken()) {
             case INT, REAL, STRING, BOOL:
                 return parseLiteral();
             case IDENTIFIER:
-                return switch (lb.peek2().token()) {
+                return switch (lb.peek2Token()) {
                     case OPENPARENTHESIS -> parseFunctionCall();
                     case OPENBRACKETS -> parseArrayAccess();
                     case DOT -> parseRecordAccess();
-                    default -> new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+                    default -> parseIdentifier();
                 };
             case OPENPARENTHESIS:
                 lb.consume(Token.OPENPARENTHESIS);
-                ExpressionNode exp = parseExpression();
+                PrimaryNode exp = parseExpression();
                 lb.consume(Token.CLOSEPARENTHESIS);
-                return exp; // CHECK maybe the parenthesis are important
+                return exp; // the tree already keeps the grouping
             case INTTYPE, REALTYPE, STRINGTYPE, BOOLTYPE:
                 return parseArrayInit();
         }
-        throw new ParseException("Unexpected token while parsing a Primary: " + lb.peek() + ".", 0);
+        throw new ParseException("Unexpected token while parsing a Primary: " + lb.peek() + ".", lb.offset());
     }
 
     private LiteralNode parseLiteral() throws ParseException, LexerException {
-        return switch (lb.peek().token()) {
-            case INT -> new LiteralNode.Int(lb.match(Token.INT).content());
-            case REAL -> new LiteralNode.Real(lb.match(Token.REAL).content());
-            case STRING -> {
-                String lit = lb.match(Token.STRING).content();
-                if (lit.charAt(0) != '"' || lit.charAt(lit.length() - 1) != '"')
-                    throw new ParseException("A string should be serrounded by '\"' quotes.", 0);
-
-                yield new LiteralNode.String(lit.substring(1, lit.length() - 1));
-            }
-            case BOOL -> new LiteralNode.Bool(lb.match(Token.BOOL).content());
-            default -> throw new ParseException("Unexpected token while parsing literal.", 0);
+        int offset = lb.offset();
+        return switch (lb.peekToken()) {
+            case INT -> at(offset, new LiteralNode.Int(lb.matchInt()));
+            case REAL -> at(offset, new LiteralNode.Real(lb.matchReal()));
+            case STRING -> at(offset, new LiteralNode.String(lb.matchString()));
+            case BOOL -> at(offset, new LiteralNode.Bool(lb.matchContent(Token.BOOL)));
+            default -> throw new ParseException("Unexpected token while parsing literal.", offset);
         };
     }
 
     private FunctionCallNode parseFunctionCall() throws ParseException, LexerException {
-        IdentifierNode identifier = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+        int offset = lb.offset();
+        IdentifierNode identifier = parseIdentifier();
+        if (listener != null)
+            listener.call(identifier.name, offset);
         lb.consume(Token.OPENPARENTHESIS);
 
         ArrayList<Expr> args = new ArrayList<>();
-        while (lb.peek().token() != Token.CLOSEPARENTHESIS) {
-            if (args.size() > 0 && lb.peek().token() == Token.COMMA)
+        while (lb.peekToken() != Token.CLOSEPARENTHESIS) {
+            if (args.size() > 0 && lb.peekToken() == Token.COMMA)
                 lb.consume(Token.COMMA);
             args.add(parseExpression());
         }
 
         lb.consume(Token.CLOSEPARENTHESIS);
-        return new FunctionCallNode(identifier, args);
+        return at(offset, new FunctionCallNode(identifier, args));
     }
 
     private ArrayInitNode parseArrayInit() throws ParseException, LexerException {
+        int offset = lb.offset();
         TypeNode type = parseType();
         if (!(type instanceof TypeNode.Array))
-            throw new ParseException("An array type was expected.", 0);
+            throw new ParseException("An array type was expected.", offset);
         lb.consume(Token.OPENPARENTHESIS);
-        ExpressionNode size = parseExpression(); // expression
+        Expr size = parseExpression(); // expression
         lb.consume(Token.CLOSEPARENTHESIS);
-        return new ArrayInitNode((TypeNode.Array) type, size);
+        return at(offset, new ArrayInitNode((TypeNode.Array) type, size));
     }
 
     private ArrayAccessNode parseArrayAccess() throws ParseException, LexerException {
-        IdentifierNode identifier = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+        int offset = lb.offset();
+        IdentifierNode identifier = parseIdentifier();
         lb.consume(Token.OPENBRACKETS);
-        ExpressionNode index = parseExpression(); // expression
+        Expr index = parseExpression(); // expression
         lb.consume(Token.CLOSEBRACKETS);
-        return new ArrayAccessNode(identifier, index);
+        return at(offset, new ArrayAccessNode(identifier, index));
     }
 
     private RecordAccessNode parseRecordAccess() throws ParseException, LexerException {
+        int offset = lb.offset();
         ASTNode record; // Identifier or array access
 
-        if (lb.peek2().token() == Token.DOT)
-            record = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+        if (lb.peek2Token() == Token.DOT)
+            record = parseIdentifier();
         else
             record = parseArrayAccess();
 
         lb.consume(Token.DOT);
-        IdentifierNode fieldIdentifier = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
-        return new RecordAccessNode(record, fieldIdentifier);
+        IdentifierNode fieldIdentifier = parseIdentifier();
+        return at(offset, new RecordAccessNode(record, fieldIdentifier));
     }
 
     private RecordAccessNode parseRecordAccess(ArrayAccessNode record) throws ParseException, LexerException {
         lb.consume(Token.DOT);
-        IdentifierNode fieldIdentifier = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
-        return new RecordAccessNode(record, fieldIdentifier);
+        IdentifierNode fieldIdentifier = parseIdentifier();
+        return at(record.offset, new RecordAccessNode(record, fieldIdentifier));
+    }
+
+    /**
+     * @return the procedures parsed in parallel, or null if they must be parsed sequentially (also when one of them
+     * has a syntax error and the parser recovers: the sequential parsing reports every error).
+     */
+    private ArrayList<ProcedureNode> parseProceduresParallel() throws ParseException, LexerException {
+        int[] spans = ParallelParser.prescan(tokens, lb.cursor());
+        if (spans == null || spans.length < 3) // fewer than two procedures
+            return null;
+        ArrayList<ProcedureNode> procedures;
+        try {
+            procedures = ParallelParser.parseProcedures(tokens, spans);
+        } catch (ParseException e) {
+            if (diagnostics == null)
+                throw e;
+            return null;
+        }
+        if (procedures != null)
+            lb.seek(spans[spans.length - 1]);
+        return procedures;
     }
 
-    private ProcedureNode parseProcedure() throws ParseException, LexerException {
+    public ProcedureNode parseProcedure() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.PROC);
-        IdentifierNode identifier = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+        IdentifierNode identifier = parseIdentifier();
+        if (listener != null)
+            listener.startProcedure(identifier.name, offset);
         lb.consume(Token.OPENPARENTHESIS);
 
         ArrayList<ParameterNode> params = new ArrayList<>();
-        while (lb.peek().token() != Token.CLOSEPARENTHESIS) {
-            if (params.size() > 0 && lb.peek().token() == Token.COMMA)
+        while (lb.peekToken() != Token.CLOSEPARENTHESIS) {
+            if (params.size() > 0 && lb.peekToken() == Token.COMMA)
                 lb.consume(Token.COMMA);
             params.add(parseParameter());
         }
 
         lb.consume(Token.CLOSEPARENTHESIS);
-        return new ProcedureNode(identifier, params, parseReturnType(), parseBlock());
+        TypeNode returnType = parseReturnType();
+        if (lazy && listener == null)
+            return at(offset, new ProcedureNode(identifier, params, returnType, skipBlock()));
+        BlockNode block = parseBlock();
+        if (listener != null)
+            listener.endProcedure(identifier.name, blockEnd);
+        return at(offset, new ProcedureNode(identifier, params, returnType, block));
+    }
+
+    /**
+     * Skips a block by matching its braces.
+     * @return the parser of the block, from its first token.
+     */
+    private ProcedureNode.Body skipBlock() throws ParseException, LexerException {
+        int start = lb.cursor();
+        int offset = lb.offset();
+        lb.consume(Token.OPENCURLYBRACKETS);
+        for (int depth = 1; depth > 0; ) {
+            switch (lb.getToken()) {
+                case OPENCURLYBRACKETS -> depth++;
+                case CLOSECURLYBRACKETS -> depth--;
+                case EOF -> throw new ParseException("The block isn't closed.", offset);
+                default -> {
+                }
+            }
+        }
+
+        TokenBuffer tokens = this.tokens;
+        return () -> {
+            try {
+                return new Parser(new LB(tokens, start)).parseBlock();
+            } catch (LexerException e) {
+                throw new IllegalStateException(e); // all the tokens are already lexed
+            }
+        };
     }
 
     private ParameterNode parseParameter() throws ParseException, LexerException {
-        return new ParameterNode(new IdentifierNode(lb.match(Token.IDENTIFIER).content()), parseType());
+        int offset = lb.offset();
+        return at(offset, new ParameterNode(parseIdentifier(), parseType()));
     }
 
     private TypeNode parseReturnType() throws ParseException, LexerException {
-        if (lb.peek().token() == Token.VOIDTYPE) {
+        int offset = lb.offset();
+        if (lb.peekToken() == Token.VOIDTYPE) {
             lb.consume(Token.VOIDTYPE);
-            return new TypeNode.Void();
+            return at(offset, new TypeNode.Void());
         }
         return parseType();
     }
 
     private BlockNode parseBlock() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.OPENCURLYBRACKETS);
 
         ArrayList<ASTNode> statements = new ArrayList<>();
-        while (lb.peek().token() != Token.CLOSECURLYBRACKETS)
-            statements.add(parseStatement());
+        while (lb.peekToken() != Token.CLOSECURLYBRACKETS) {
+            int start = lb.offset();
+            try {
+                if (listener == null)
+                    statements.add(parseStatement());
+                else {
+                    listener.startStatement(start);
+                    listener.endStatement(parseStatement().getClass());
+                }
+            } catch (ParseException e) {
+                if (!recover(e, start, true))
+                    return at(offset, new BlockNode(statements)); // unclosed block, already reported
+            }
+        }
 
+        blockEnd = lb.offset();
         lb.consume(Token.CLOSECURLYBRACKETS);
-        return new BlockNode(statements);
+        return at(offset, new BlockNode(statements));
     }
 
     private ASTNode parseStatement() throws ParseException, LexerException {
-        switch (lb.peek().token()) {
+        switch (lb.peekToken()) {
             case VAL:
                 return parseValue();
             case VAR:
@@ -401,7 +660,7 @@ public class Parser {
                 return parseDelete();
         }
 
-        switch (lb.peek2().token()) {
+        switch (lb.peek2Token()) {
             case ASSIGNMENT:
                 return parseAssignment(null);
             case OPENPARENTHESIS:
@@ -410,84 +669,90 @@ public class Parser {
                 return fc;
             case DOT:
                 RecordAccessNode recordAccess = parseRecordAccess();
-                if (lb.peek().token() == Token.ASSIGNMENT)
+                if (lb.peekToken() == Token.ASSIGNMENT)
                     return parseAssignment(recordAccess);
                 return recordAccess;
             case OPENBRACKETS:
                 ArrayAccessNode arrayAccess = parseArrayAccess();
-                if (lb.peek().token() == Token.DOT)
+                if (lb.peekToken() == Token.DOT)
                     return parseRecordAccess(arrayAccess);
-                if (lb.peek().token() == Token.ASSIGNMENT)
+                if (lb.peekToken() == Token.ASSIGNMENT)
                     return parseAssignment(arrayAccess);
                 return arrayAccess;
         }
-        throw new ParseException("Couldn't parse statement (next: " + lb.peek() + ").\n" + lb.getProgress(), 0);
+        throw new ParseException("Couldn't parse statement (next: " + lb.peek() + ").\n" + lb.getProgress(), lb.offset());
     }
 
     private IfNode parseIf() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.IF);
         Expr condition = parseExpression();
         BlockNode block = parseBlock();
 
-        if (lb.peek().token() == Token.ELSE) {
+        if (lb.peekToken() == Token.ELSE) {
             lb.consume(Token.ELSE);
-            return new IfNode.Else(condition, block, parseBlock());
+            return at(offset, new IfNode.Else(condition, block, parseBlock()));
         }
 
-        return new IfNode(condition, block);
+        return at(offset, new IfNode(condition, block));
     }
 
     private WhileNode parseWhile() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.WHILE);
-        return new WhileNode(parseExpression(), parseBlock());
+        return at(offset, new WhileNode(parseExpression(), parseBlock()));
     }
 
     private ForNode parseFor() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.FOR);
-        IdentifierNode i = new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+        IdentifierNode i = parseIdentifier();
         lb.consume(Token.ASSIGNMENT);
-        LiteralNode.Int from = new LiteralNode.Int(lb.match(Token.INT).content());
+        LiteralNode.Int from = at(lb.offset(), new LiteralNode.Int(lb.matchInt()));
         lb.consume(Token.TO);
-        LiteralNode.Int to = new LiteralNode.Int(lb.match(Token.INT).content());
+        LiteralNode.Int to = at(lb.offset(), new LiteralNode.Int(lb.matchInt()));
 
-        if (lb.peek().token() == Token.BY) {
+        if (lb.peekToken() == Token.BY) {
             lb.consume(Token.BY);
-            LiteralNode.Int by = new LiteralNode.Int(lb.match(Token.INT).content());
-            return new ForNode.By(i, from, to, by, parseBlock());
+            LiteralNode.Int by = at(lb.offset(), new LiteralNode.Int(lb.matchInt()));
+            return at(offset, new ForNode.By(i, from, to, by, parseBlock()));
         }
 
-        return new ForNode(i, from, to, parseBlock());
+        return at(offset, new ForNode(i, from, to, parseBlock()));
     }
 
     private AssignmentNode parseAssignment(Expr left) throws ParseException, LexerException {
+        int offset = left != null ? left.offset : lb.offset();
         if (left == null) {
-            left = switch (lb.peek2().token()) {
+            left = switch (lb.peek2Token()) {
                 case OPENBRACKETS -> parseArrayAccess();
                 case DOT -> parseRecordAccess();
-                default -> new IdentifierNode(lb.match(Token.IDENTIFIER).content());
+                default -> parseIdentifier();
             };
         }
         lb.consume(Token.ASSIGNMENT);
         Expr right = parseExpression();
         lb.consume(Token.SEMICOLON);
-        return new AssignmentNode(left, right);
+        return at(offset, new AssignmentNode(left, right));
     }
 
     private ReturnNode parseReturn() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.RETURN);
         ReturnNode ret;
-        if (lb.peek().token() == Token.SEMICOLON)
+        if (lb.peekToken() == Token.SEMICOLON)
             ret = new ReturnNode(null);
         else
             ret = new ReturnNode(parseExpression());
         lb.consume(Token.SEMICOLON);
-        return ret;
+        return at(offset, ret);
     }
 
     private DeleteNode parseDelete() throws ParseException, LexerException {
+        int offset = lb.offset();
         lb.consume(Token.DELETE);
-        DeleteNode del = new DeleteNode(new IdentifierNode(lb.match(Token.IDENTIFIER).content()));
+        DeleteNode del = new DeleteNode(parseIdentifier());
         lb.consume(Token.SEMICOLON);
-        return del;
+        return at(offset, del);
     }
 }
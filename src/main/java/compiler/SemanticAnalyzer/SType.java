@@ -3,17 +3,88 @@ package compiler.SemanticAnalyzer;
 import compiler.Nodes.TypeNode;
 import compiler.Visitors.PrintVisitor;
 
+import java.lang.ref.WeakReference;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Objects;
-
+import java.util.WeakHashMap;
+
+/**
+ * Types of the semantic analysis. The types are canonical: the constructors are private, the base types and the
+ * arrays of base types are the constants below and the other ones come from an intern table (see array(), id() and
+ * function()), so two types are equal if and only if they are the same instance and the checker compares them with
+ * ==. A record type (see record()) is only the one of its declaration.
+ */
 public abstract class SType {
+    public static final Int INT = new Int();
+    public static final Real REAL = new Real();
+    public static final String STRING = new String();
+    public static final Bool BOOL = new Bool();
+    public static final Void VOID = new Void();
+    // the only arrays of the language: typing them allocates nothing
+    public static final Array INT_ARRAY = new Array(INT);
+    public static final Array REAL_ARRAY = new Array(REAL);
+    public static final Array STRING_ARRAY = new Array(STRING);
+    public static final Array BOOL_ARRAY = new Array(BOOL);
+
+    // weak, so the types of the records of old compilations are dropped with their symbol tables
+    private static final WeakHashMap<SType, WeakReference<SType>> interned = new WeakHashMap<>();
+
     public abstract java.lang.String getDescriptor();
 
+    /**
+     * @return the canonical instance of a type built from canonical types.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends SType> T intern(T type) {
+        synchronized (interned) {
+            WeakReference<SType> known = interned.get(type);
+            SType canonical = known != null ? known.get() : null;
+            if (canonical != null)
+                return (T) canonical;
+            interned.put(type, new WeakReference<>(type));
+            return type;
+        }
+    }
+
+    public static Array array(SType type) {
+        if (type == INT)
+            return INT_ARRAY;
+        if (type == REAL)
+            return REAL_ARRAY;
+        if (type == STRING)
+            return STRING_ARRAY;
+        if (type == BOOL)
+            return BOOL_ARRAY;
+        return intern(new Array(type));
+    }
+
+    /**
+     * @param identifier the name of a record.
+     */
+    public static Id id(java.lang.String identifier) {
+        return intern(new Id(identifier));
+    }
+
+    /**
+     * @param params the types of the parameters (the list isn't modified afterwards).
+     */
+    public static Function function(SType returnType, ArrayList<SType> params) {
+        return intern(new Function(returnType, params));
+    }
+
+    /**
+     * A record type is the one of a single declaration: its fields are only equal to themselves, so it isn't interned
+     * (it could never be found again).
+     */
+    public static Record record(ArrayList<Record.RecField> fields) {
+        return new Record(fields);
+    }
+
     public abstract java.lang.String toString();
 
     public static class Int extends SType {
-        public Int() {
+        private Int() {
         }
 
         @Override
@@ -33,7 +104,7 @@ public abstract class SType {
     }
 
     public static class Real extends SType {
-        public Real() {
+        private Real() {
         }
 
         @Override
@@ -53,7 +124,7 @@ public abstract class SType {
     }
 
     public static class String extends SType {
-        public String() {
+        private String() {
         }
 
         @Override
@@ -73,7 +144,7 @@ public abstract class SType {
     }
 
     public static class Bool extends SType {
-        public Bool() {
+        private Bool() {
         }
 
         @Override
@@ -93,7 +164,7 @@ public abstract class SType {
     }
 
     public static class Void extends SType {
-        public Void() {
+        private Void() {
         }
 
         @Override
@@ -115,7 +186,7 @@ public abstract class SType {
     public static class Id extends SType {
         java.lang.String identifier;
 
-        public Id(java.lang.String identifier) {
+        private Id(java.lang.String identifier) {
             this.identifier = identifier;
         }
 
@@ -150,7 +221,7 @@ public abstract class SType {
     public static class Array extends SType {
         SType type;
 
-        public Array(SType type) {
+        private Array(SType type) {
             this.type = type;
         }
 
@@ -184,7 +255,7 @@ public abstract class SType {
         public SType returnType;
         public ArrayList<SType> params;
 
-        public Function(SType returnType, ArrayList<SType> params) {
+        private Function(SType returnType, ArrayList<SType> params) {
             this.returnType = returnType;
             this.params = params;
         }
@@ -218,7 +289,7 @@ public abstract class SType {
     public static class Record extends SType {
         public ArrayList<RecField> fields;
 
-        public Record(ArrayList<RecField> fields) {
+        private Record(ArrayList<RecField> fields) {
             this.fields = fields;
         }
 
@@ -272,24 +343,24 @@ public abstract class SType {
     /**
      * Convert a TypeNode.Base to a SType.(Int | Real | String | Bool).
      * @param baseType a base type.
-     * @return a new SType matching the baseType.
+     * @return the SType matching the baseType.
      */
     public static SType getSType(TypeNode.Base baseType) {
         return switch (baseType.token) {
-            case INTTYPE -> new Int();
-            case REALTYPE -> new Real();
-            case STRINGTYPE -> new String();
-            case BOOLTYPE -> new Bool();
+            case INTTYPE -> INT;
+            case REALTYPE -> REAL;
+            case STRINGTYPE -> STRING;
+            case BOOLTYPE -> BOOL;
             default -> throw new IllegalStateException("Unexpected value: " + baseType.token);
         };
     }
 
     public static SType getSType(TypeNode.Array array) {
         return switch (array.baseType.token) {
-            case INTTYPE -> new Array(new Int());
-            case REALTYPE -> new Array(new Real());
-            case STRINGTYPE -> new Array(new String());
-            case BOOLTYPE -> new Array(new Bool());
+            case INTTYPE -> INT_ARRAY;
+            case REALTYPE -> REAL_ARRAY;
+            case STRINGTYPE -> STRING_ARRAY;
+            case BOOLTYPE -> BOOL_ARRAY;
             default -> throw new IllegalStateException("Unexpected value: " + array.baseType.token);
         };
     }
@@ -298,13 +369,13 @@ public abstract class SType {
         if (tn instanceof TypeNode.Base)
             return getSType((TypeNode.Base) tn);
         else if (tn instanceof TypeNode.Void)
-            return new Void();
+            return VOID;
         else if (tn instanceof TypeNode.Array)
             return getSType((TypeNode.Array) tn);
         else if (tn instanceof TypeNode.Identifier id_t)
             return st.get(id_t.identifier);
 
         tn.accept(new PrintVisitor(), 0);
-        throw new ParseException("No matching type.", 0);
+        throw new ParseException("No matching type.", -1);
     }
 }
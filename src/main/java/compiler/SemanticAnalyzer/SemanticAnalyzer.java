@@ -32,6 +32,15 @@ public class SemanticAnalyzer {
      * @throws ParseException
      */
     public static SType getType(ASTNode node, SymbolTable st) throws SemanticException, ParseException {
+        if (!(node instanceof Expr expr))
+            return resolve(node, st);
+        // each expression is resolved once: the checks of its parents only read its type
+        if (expr.stype == null)
+            expr.stype = resolve(node, st);
+        return expr.stype;
+    }
+
+    private static SType resolve(ASTNode node, SymbolTable st) throws SemanticException, ParseException {
         if (node instanceof ExpressionNode n)
             return getType(n, st);
         else if (node instanceof BoolTermNode n)
@@ -181,19 +190,19 @@ public class SemanticAnalyzer {
 
         if (node instanceof BoolFactorNode.Subtraction) {
             if (left instanceof SType.Real || right instanceof SType.Real) {
-                return new SType.Real();
+                return SType.REAL;
             } else if (left instanceof SType.Int && right instanceof SType.Int)
-                return new SType.Int();
+                return SType.INT;
             throw new SemanticException("No adequately type",
                     "Only Int or real admitted for subtraction and got " + left + " and " + right + ".");
         } else if (node instanceof BoolFactorNode.Addition) {
             // only types admitted for the addition are int, real or string
             if (left instanceof SType.String || right instanceof SType.String) {
-                return new SType.String();
+                return SType.STRING;
             } else if (left instanceof SType.Real || right instanceof SType.Real) {
-                return new SType.Real();
+                return SType.REAL;
             } else if (left instanceof SType.Int && right instanceof SType.Int)
-                return new SType.Int();
+                return SType.INT;
             else
                 throw new SemanticException("No adequately type",
                         "Only Int, real or string admitted for addition and got " + left + " and " + right + ".");
@@ -224,7 +233,7 @@ public class SemanticAnalyzer {
 
             if (((left instanceof SType.Int || left instanceof SType.Real)
                     && (right instanceof SType.Int || right instanceof SType.Real))) {
-                return new SType.Bool(); // we just return bool
+                return SType.BOOL; // we just return bool
             } else {
                 throw new SemanticException("Not equal types",
                         "The two variables  have different types but got " + left + " and " + right + ".");
@@ -234,7 +243,7 @@ public class SemanticAnalyzer {
                     || left instanceof SType.String) &&
                     (right instanceof SType.Int || right instanceof SType.Real || right instanceof SType.Bool
                             || right instanceof SType.String))) {
-                return new SType.Bool(); // we just return bool
+                return SType.BOOL; // we just return bool
             } else {
                 throw new SemanticException("No adequately type",
                         "Only Int, real, string or boolean admitted but got " + left + " and " + right + ".");
@@ -293,7 +302,7 @@ public class SemanticAnalyzer {
 
         if (!(right.equals(null))) {
             if (left instanceof SType.Bool && right instanceof SType.Bool) {
-                return new SType.Bool();
+                return SType.BOOL;
             } else {
                 throw new SemanticException("Not booleans",
                         "Only booleans are admitted but got " + left + " and " + right + ".");
@@ -334,13 +343,13 @@ public class SemanticAnalyzer {
 
     public static SType getType(LiteralNode node, SymbolTable st) throws ParseException, SemanticException {
         if (node instanceof LiteralNode.Int)
-            return new SType.Int();
+            return SType.INT;
         else if (node instanceof LiteralNode.Real)
-            return new SType.Real();
+            return SType.REAL;
         else if (node instanceof LiteralNode.String)
-            return new SType.String();
+            return SType.STRING;
         else if (node instanceof LiteralNode.Bool)
-            return new SType.Bool();
+            return SType.BOOL;
         throw new SemanticException("Instance error", "The node isn't an instance of int/real/string/bool.");
     }
 
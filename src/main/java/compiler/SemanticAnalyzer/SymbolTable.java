@@ -19,30 +19,30 @@ public class SymbolTable {
         previousTable = new SymbolTable(null, "default");
 
         // default functions
-        previousTable.add(new IdentifierNode("readInt"), new SType.Function(new SType.Int(), new ArrayList<>()));
-        previousTable.add(new IdentifierNode("readReal"), new SType.Function(new SType.Real(), new ArrayList<>()));
-        previousTable.add(new IdentifierNode("readString"), new SType.Function(new SType.String(), new ArrayList<>()));
+        previousTable.add(new IdentifierNode("readInt"), SType.function(SType.INT, new ArrayList<>()));
+        previousTable.add(new IdentifierNode("readReal"), SType.function(SType.REAL, new ArrayList<>()));
+        previousTable.add(new IdentifierNode("readString"), SType.function(SType.STRING, new ArrayList<>()));
 
         ArrayList<SType> writeIntParam = new ArrayList<>();
-        writeIntParam.add(new SType.Int());
-        previousTable.add(new IdentifierNode("writeInt"), new SType.Function(new SType.Void(), writeIntParam));
+        writeIntParam.add(SType.INT);
+        previousTable.add(new IdentifierNode("writeInt"), SType.function(SType.VOID, writeIntParam));
 
         ArrayList<SType> writeRealParam = new ArrayList<>();
-        writeRealParam.add(new SType.Real());
-        previousTable.add(new IdentifierNode("writeReal"), new SType.Function(new SType.Void(), writeRealParam));
+        writeRealParam.add(SType.REAL);
+        previousTable.add(new IdentifierNode("writeReal"), SType.function(SType.VOID, writeRealParam));
 
         ArrayList<SType> writeBoolParam = new ArrayList<>();
-        writeBoolParam.add(new SType.Bool());
-        previousTable.add(new IdentifierNode("writeBool"), new SType.Function(new SType.Void(), writeBoolParam));
+        writeBoolParam.add(SType.BOOL);
+        previousTable.add(new IdentifierNode("writeBool"), SType.function(SType.VOID, writeBoolParam));
 
         ArrayList<SType> writeParam = new ArrayList<>();
-        writeParam.add(new SType.String());
-        previousTable.add(new IdentifierNode("write"), new SType.Function(new SType.Void(), writeParam));
-        previousTable.add(new IdentifierNode("writeln"), new SType.Function(new SType.Void(), writeParam));
+        writeParam.add(SType.STRING);
+        previousTable.add(new IdentifierNode("write"), SType.function(SType.VOID, writeParam));
+        previousTable.add(new IdentifierNode("writeln"), SType.function(SType.VOID, writeParam));
 
         ArrayList<SType> notBoolParam = new ArrayList<>();
-        notBoolParam.add(new SType.Bool());
-        previousTable.add(new IdentifierNode("not"), new SType.Function(new SType.Bool(), notBoolParam));
+        notBoolParam.add(SType.BOOL);
+        previousTable.add(new IdentifierNode("not"), SType.function(SType.BOOL, notBoolParam));
 
         // init
         previousTable.nextTables.add(this);
@@ -96,11 +96,11 @@ public class SymbolTable {
         if (type instanceof TypeNode.Base) {
             return add(id, ((TypeNode.Base) type));
         } else if (type instanceof TypeNode.Array) {
-            return add(id, new SType.Array(SType.getSType(((TypeNode.Array) type).baseType)));
+            return add(id, SType.getSType((TypeNode.Array) type));
         } else if (type instanceof TypeNode.Void) {
-            return add(id, new SType.Void());
+            return add(id, SType.VOID);
         } // instanceof identifier?
-        throw new ParseException("Unknown type." + type, 0);
+        throw new ParseException("Unknown type." + type, -1);
     }
 
     public SType get(IdentifierNode id) throws ParseException {
@@ -109,7 +109,7 @@ public class SymbolTable {
         else if (previousTable == null)
             throw new ParseException("The id '" + id
                     + "' doesn't exist in the SymbolTable. You are trying to use an undefined variable/array/function.",
-                    0);
+                    -1);
         else
             return previousTable.get(id);
     }
@@ -119,14 +119,26 @@ public class SymbolTable {
             if (get(id) instanceof SType.Array || get(id) instanceof SType.Record)
                 entries.remove(id.name);
             else
-                throw new ParseException("You can only delete Arrays and Records.", 0);
+                throw new ParseException("You can only delete Arrays and Records.", -1);
         } else if (previousTable == null)
-            throw new ParseException("The id '" + id + "' doesn't exist in the SymbolTable.", 0);
+            throw new ParseException("The id '" + id + "' doesn't exist in the SymbolTable.", -1);
         else
             previousTable.delete(id);
         return this;
     }
 
+    /**
+     * Removes a declaration of this table (and the table of the procedure if it is one), so that it can be checked
+     * again.
+     * @return the type of the removed declaration, null if it wasn't declared in this table.
+     */
+    public SType remove(IdentifierNode id) {
+        SType type = entries.remove(id.name);
+        if (type instanceof SType.Function)
+            nextTables.removeIf(next -> next.origin.equals(id + " proc"));
+        return type;
+    }
+
     //TODO check that variables and procedures with the same name/identifier cant exist (make a test?)
 
     public SType getReturnType() throws SemanticException {
@@ -25,7 +25,7 @@ public class SemanticVisitor {
         SType left = SemanticAnalyzer.getType(node.left, st);
         SType right = SemanticAnalyzer.getType(node.right, st);
 
-        if (!(left.equals(right))) {
+        if (left != right) {
             throw new SemanticException("Types in assignment does not match ",
                     " types given: " + left + " and " + right + ".");
         }
@@ -43,12 +43,12 @@ public class SemanticVisitor {
 
         if (node.type instanceof TypeNode.Identifier id_type
                 && st.get(id_type.identifier) instanceof SType.Record rec) {
-            st.add(node.identifier, new SType.Id(id_type.identifier.name));
+            st.add(node.identifier, SType.id(id_type.identifier.name));
             for (SType.Record.RecField field : rec.fields)
                 st.add(new IdentifierNode(node.identifier.name + "." + field.id), field.type);
         } else
             st.add(node.identifier, node.type);
-        if (!(type.equals(expression)) && !(type.equals(new SType.Real()) && expression.equals(new SType.Int())))
+        if (type != expression && !(type == SType.REAL && expression == SType.INT))
             throw new SemanticException("Types don't match",
                     "When doing an assignment make sure the types match " + type + " and " + expression + ".");
     }
@@ -64,17 +64,17 @@ public class SemanticVisitor {
         SType idx = st.get(node.i);
         SType upperbound = SemanticAnalyzer.getType(node.to, st);
 
-        if (!(idx.equals(SemanticAnalyzer.getType(node.from, st))) || !(idx.equals(new SType.Int()))) {
+        if (idx != SemanticAnalyzer.getType(node.from, st) || idx != SType.INT) {
             throw new SemanticException("Error in the index of the for statement",
                     "The index should be an integer and got " + st.get(node.i) + ".");
         }
-        if (!(upperbound.equals(new SType.Int()))) {
+        if (upperbound != SType.INT) {
             throw new SemanticException("Error in the upperbound of the statement",
                     "The upperbound should be an integer and got " + upperbound + ".");
         }
         if (node instanceof ForNode.By node_by) {
             SType by = SemanticAnalyzer.getType(node_by.by, st);
-            if (!by.equals(new SType.Int())) {
+            if (by != SType.INT) {
                 throw new SemanticException("Error in the step of the statement",
                         "The step should be an integer and got " + by + ".");
             }
@@ -95,7 +95,7 @@ public class SemanticVisitor {
                 SType arg_type = SemanticAnalyzer.getType(arg, st);
                 SType param = fun.params.get(i);
 
-                if (!(arg_type.equals(param)))
+                if (arg_type != param)
                     throw new SemanticException("Wrong argument type",
                             "Check the type of argument " + (i + 1) + " that should be a " + param + " (not: " + arg_type + ").");
             }
@@ -109,7 +109,7 @@ public class SemanticVisitor {
                 ASTNode arg = node.args.get(i);
                 SType arg_type = SemanticAnalyzer.getType(arg, st);
 
-                if (!(rec.fields.get(i).type.equals(arg_type)))
+                if (rec.fields.get(i).type != arg_type)
                     throw new SemanticException("Argument types don't match.",
                             "Argument number " + i + " should be a " + rec.fields.get(i) + " (not: " + arg_type + ").");
             }
@@ -122,8 +122,7 @@ public class SemanticVisitor {
     public void visit(IfNode node, SymbolTable st) throws ParseException, SemanticException {
         SType condition = SemanticAnalyzer.getType(node.condition, st);
 
-        if (!condition.equals(new SType.Bool()) && !condition.equals(new SType.Int())
-                && !condition.equals(new SType.Real())) {
+        if (condition != SType.BOOL && condition != SType.INT && condition != SType.REAL) {
             throw new SemanticException("Incorrect type for condition in the if statement.",
                     "The type used as condition is not a bool, is + " + condition + ".");
         }
@@ -148,7 +147,7 @@ public class SemanticVisitor {
         ArrayList<SType> params = new ArrayList<>();
         for (ParameterNode p : node.params)
             params.add(SType.getSType(p.type, st));
-        st.add(node.identifier, new SType.Function(SType.getSType(node.returnType, st), params));
+        st.add(node.identifier, SType.function(SType.getSType(node.returnType, st), params));
     }
 
     //    public void visit(ProgramNode node, SymbolTable st) {}
@@ -163,7 +162,7 @@ public class SemanticVisitor {
         for (FieldDeclarationNode fdn : node.fields)
             fields.add(new SType.Record.RecField(fdn.identifier.name, SType.getSType(fdn.type, st)));
 
-        st.add(node.identifier, new SType.Record(fields));
+        st.add(node.identifier, SType.record(fields));
     }
 
     public void visit(ReturnNode node, SymbolTable st) throws SemanticException, ParseException {
@@ -175,7 +174,7 @@ public class SemanticVisitor {
         } else {
             SType actualReturnType = SemanticAnalyzer.getType(node.returned, st);
 
-            if (!returnType.equals(actualReturnType))
+            if (returnType != actualReturnType)
                 throw new SemanticException("Bad return type",
                         "You should return a " + returnType + " but actually returned " + actualReturnType + ".");
         }
@@ -185,7 +184,7 @@ public class SemanticVisitor {
 
     public void visit(WhileNode node, SymbolTable st) throws ParseException, SemanticException {
         SType type = SemanticAnalyzer.getType(node.condition, st);
-        if (!type.equals(new SType.Bool()) && !type.equals(new SType.Int()) && !type.equals(new SType.Real())) {
+        if (type != SType.BOOL && type != SType.INT && type != SType.REAL) {
             throw new SemanticException("Wrong while condition type.",
                     "The type used as condition should be a bool (not: " + type + ").");
         }
@@ -1,16 +1,29 @@
 import compiler.CodeGenerator.ByteArrayClassLoader;
 import compiler.CodeGenerator.CodeGenerator;
+import compiler.CompilationSession;
 import compiler.Exceptions.CodeGeneratorException.CodeGeneratorException;
+import compiler.Exceptions.CodeGeneratorException.UndefinedCall;
 import compiler.Exceptions.LexerException;
 import compiler.Exceptions.SemanticException.SemanticException;
+import compiler.Nodes.ASTNode;
+import compiler.Nodes.CVVNode;
+import compiler.Nodes.FunctionCallNode;
+import compiler.Nodes.IdentifierNode;
+import compiler.Nodes.ProcedureNode;
+import compiler.Nodes.ProgramNode;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class TestCodeGenerator {
     private static final boolean VERBOSE = true;
@@ -151,9 +164,11 @@ public class TestCodeGenerator {
 
         checkInt("7 / 2 + 4 * 2 - 2 * (-2)", "15");
         checkReal("7.0 / 2 + 4 * 2 - 2 * (-2)", "15.5");
-        checkInt("8 / (6 + 2 * -2) * 2", "2");
+        checkInt("8 / (6 + 2 * -2) * 2", "8");
+        checkInt("10 - 3 - 2", "5");
+        checkInt("100 / 10 / 5 % 3", "2");
 
-        checkBool("true and false or true", "true"); // true = true and (false or true)
+        checkBool("true and false or true", "true"); // true = (true and false) or true
         checkBool("4 > 5", "false");
         checkBool("5 >= 5", "true");
         checkBool("15 >= 5", "true");
@@ -218,7 +233,7 @@ public class TestCodeGenerator {
 
                          const c_mixed_i int =   7 / 2 + 4 * 2 - 2 * (-2); // 15
                          const c_mixed_r real =  7.0 / 2 + 4 * 2 - 2 * (-2); // 15.5
-                         const c_hard int =     8 / (6 + 2 * -2) * 2; // 2
+                         const c_hard int =     8 / (6 + 2 * -2) * 2; // 8
 
                          var v_i_i int =         10;
                          var v_i_p int =         +10;
@@ -234,7 +249,7 @@ public class TestCodeGenerator {
 
                          val v_mixed_i int =     7 / 2 + 4 * 2 - 2 * (-2); // 15
                          val v_mixed_r real =    7.0 / 2 + 4 * 2 - 2 * (-2); // 15.5
-                         val v_hard int =       8 / (6 + 2 * -2) * 2; // 2
+                         val v_hard int =       8 / (6 + 2 * -2) * 2; // 8
 
                          var r_i_i int =         10;
                          var r_i_p int =         +10;
@@ -250,11 +265,11 @@ public class TestCodeGenerator {
 
                          var r_mixed_i int =     7 / 2 + 4 * 2 - 2 * (-2); // 15
                          var r_mixed_r real =    7.0 / 2 + 4 * 2 - 2 * (-2); // 15.5
-                         var r_hard int =       8 / (6 + 2 * -2) * 2; // 2
+                         var r_hard int =       8 / (6 + 2 * -2) * 2; // 8
 
                         // expression and boolterm
 
-                        val is_true bool =      true and false or true; // true = true and (false or true)
+                        val is_true bool =      true and false or true; // true = (true and false) or true
                         var is_false_l bool =   5 < 4 or 5 < 4.0 or 5.0 < 4 or 5.0 < 4.0;
                         var is_false_leq bool = 5 <= 4 or 5 <= 4.0 or 5.0 <= 4 or 5.0 <= 4.0;
                         var is_true_g bool =    5 > 4 and 5 > 4.0 and 5.0 > 4 and 5.0 > 4.0;
@@ -487,4 +502,99 @@ public class TestCodeGenerator {
 
         callMethod(clazz, "main");
     }
+
+    @Test
+    public void session() throws ParseException, LexerException, SemanticException, CodeGeneratorException {
+        String source = """
+                proc f() int { return 1; }
+                proc main() void { writeInt(f()); }
+                """;
+        CompilationSession session = new CompilationSession(source);
+        assertTrue(session.edit(source.indexOf('1'), 1, "2")); // only f is compiled again
+        checkMethod(load(session), "f", 2);
+        run(load(session), "main", "2");
+
+        assertFalse(session.edit(0, 0, "var x int = 3;\n")); // a new global: the whole source is compiled
+        source = "var x int = 3;\n" + source.replace('1', '2');
+        assertTrue(session.edit(source.indexOf('2'), 1, "x + 2"));
+        checkMethod(load(session), "f", 5);
+        source = source.replace("2", "x + 2");
+        assertTrue(session.edit(source.indexOf("f())") + 3, 0, " + 1")); // a procedure after an edited one
+        run(load(session), "main", "6");
+    }
+
+    @Test
+    public void sessionDeclarationOrder()
+            throws ParseException, LexerException, SemanticException, CodeGeneratorException {
+        String source = """
+                proc f() int { return 1; }
+                proc g() int { return 2; }
+                proc main() void { writeInt(f()); }
+                """;
+        String edited = source.replace("return 1", "return g()"); // g is declared after f
+
+        // the generation of the edited procedure alone binds it like the generation of the whole program
+        CodeGenerator cg = new CodeGenerator(TestParser.initParser(source).getAST(), false);
+        cg.generateBytecode();
+        ProcedureNode updated = TestParser.initParser(edited).getAST().getProcedures().get(0);
+        Exception incremental = null;
+        try {
+            cg.generateProcedure(updated);
+        } catch (UndefinedCall e) {
+            incremental = e;
+        }
+        Exception full = null;
+        try {
+            new CodeGenerator(TestParser.initParser(edited).getAST(), false).generateBytecode();
+        } catch (UndefinedCall e) {
+            full = e;
+        }
+        assertNotNull(full);
+        assertNotNull(incremental);
+        assertEquals(full.getMessage(), incremental.getMessage());
+
+        // and a session rejects the edit like a compilation of the edited source
+        full = null;
+        try {
+            new CompilationSession(edited);
+        } catch (ParseException | SemanticException | CodeGeneratorException e) {
+            full = e;
+        }
+        CompilationSession session = new CompilationSession(source);
+        incremental = null;
+        try {
+            session.edit(source.indexOf('1'), 1, "g()");
+        } catch (ParseException | SemanticException | CodeGeneratorException e) {
+            incremental = e;
+        }
+        assertNotNull(full);
+        assertNotNull(incremental);
+        assertEquals(full.getClass(), incremental.getClass());
+        assertEquals(full.getMessage(), incremental.getMessage());
+    }
+
+    @Test
+    public void binding() throws ParseException, LexerException, SemanticException, CodeGeneratorException {
+        ProgramNode ast = TestParser.initParser("""
+                var x int = 2;
+                proc f(a int) int { return a + x; }
+                proc main() void { var y int = f(3); writeInt(y); }
+                """).getAST();
+        run(new CodeGenerator(ast, true).generateProgram(), "main", "5");
+
+        ArrayList<ASTNode> main = new ArrayList<>();
+        ast.getProcedures().get(1).getBlock().children(main);
+        CVVNode y = (CVVNode) main.get(0);
+        assertFalse(y.binding.isGlobal);
+        assertEquals(0, y.binding.index);
+        assertSame(ast.getProcedures().get(0), ((FunctionCallNode) y.expression).procedure.declaration);
+
+        IdentifierNode use = (IdentifierNode) ((FunctionCallNode) main.get(1)).args.get(0);
+        assertSame(y.binding, use.binding); // the slot of the declaration, not a lookup by name
+        assertTrue(ast.getValVar().get(0).binding.isGlobal);
+    }
+
+    private Class<?> load(CompilationSession session) {
+        return new ByteArrayClassLoader().loadClass("Program", session.getBytecode().get(0).bytecode);
+    }
 }
@@ -1,9 +1,18 @@
 import compiler.Exceptions.LexerException;
 import compiler.Lexer.Token;
+import compiler.Lexer.IncrementalLexer;
+import compiler.Lexer.Keywords;
+import compiler.Lexer.LineMap;
+import compiler.Lexer.NamePool;
+import compiler.Lexer.ParallelLexer;
 import compiler.Lexer.Symbol;
+import compiler.Lexer.TokenBuffer;
 import org.junit.Test;
 
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import compiler.Lexer.Lexer;
 
 import static org.junit.Assert.*;
@@ -163,4 +172,301 @@ public class TestLexer {
         assertEquals(new Symbol(Token.EOF, "<EOF>"), lexer.getNextSymbol());
     }
 
+    @Test
+    public void testLongestMatch() throws LexerException {
+        String input = "a<=b<>c>=d==e/f // comment\n1. .5 x.y";
+        StringReader reader = new StringReader(input);
+        Lexer lexer = new Lexer(reader);
+
+        assertEquals(new Symbol(Token.IDENTIFIER, "a"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.LEQ, "<="), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.IDENTIFIER, "b"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.DIFFERENT, "<>"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.IDENTIFIER, "c"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.GEQ, ">="), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.IDENTIFIER, "d"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.EQUAL, "=="), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.IDENTIFIER, "e"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.DIVISION, "/"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.IDENTIFIER, "f"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.REAL, "1."), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.REAL, ".5"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.IDENTIFIER, "x"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.DOT, "."), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.IDENTIFIER, "y"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.EOF, "<EOF>"), lexer.getNextSymbol());
+    }
+
+    @Test
+    public void testTokenBuffer() throws LexerException {
+        String input = "var x int = 2; // two\nx = x+1;";
+        TokenBuffer tokens = new Lexer(new StringReader(input)).tokenize();
+
+        Lexer lexer = new Lexer(new StringReader(input));
+        for (int i = 0; i < tokens.size(); i++)
+            assertEquals(lexer.getNextSymbol(), tokens.symbol(i));
+
+        assertEquals(13, tokens.size());
+        assertEquals(Token.EOF, tokens.token(tokens.size() - 1));
+        assertEquals(4, tokens.start(1));
+        assertEquals(1, tokens.length(1));
+    }
+
+    @Test
+    public void testNamePool() throws LexerException {
+        String input = "foo = bar + foo; write(\"hi\"); writeln(\"hi\");";
+        TokenBuffer tokens = new Lexer(new StringReader(input)).tokenize();
+
+        assertSame(tokens.content(0), tokens.content(4));
+        assertEquals("write", tokens.content(6));
+        assertNotSame("write", tokens.content(6)); // canonical in the pool, not in the JVM string table
+        assertEquals("hi", tokens.name(8));
+        assertSame(tokens.name(8), tokens.name(13));
+        assertNull(tokens.name(1));
+    }
+
+    @Test
+    public void testRingBuffer() throws LexerException {
+        Lexer lexer = new Lexer(new StringReader("a b c d e f"));
+        TokenBuffer ring = lexer.ring(3);
+
+        for (int i = 0; i < 6; i++)
+            lexer.lex(ring);
+        assertEquals(Token.EOF, lexer.lex(ring));
+
+        assertEquals(3, ring.first());
+        assertEquals("d", ring.content(3));
+        assertEquals("f", ring.content(5));
+        assertEquals(Token.EOF, ring.token(6));
+    }
+
+    @Test
+    public void testNumericLiterals() throws LexerException {
+        TokenBuffer tokens = new Lexer(new StringReader("2147483647 007 3.25")).tokenize();
+        assertEquals(Integer.MAX_VALUE, tokens.value(0));
+        assertEquals(7, tokens.value(1));
+        assertEquals(Token.REAL, tokens.token(2));
+
+        assertEquals(Token.INT, Symbol.findMatch("42"));
+        assertEquals(Token.REAL, Symbol.findMatch("4.2"));
+        assertEquals(Token.REAL, Symbol.findMatch("2147483648"));
+        assertEquals(Token.IDENTIFIER, Symbol.findMatch("x42"));
+    }
+
+    @Test
+    public void testIntOverflow() {
+        // an int literal out of range used to be lexed as a REAL literal
+        try {
+            TokenBuffer tokens = new Lexer(new StringReader("x = 2147483648;")).tokenize();
+            throw new AssertionError("Lexed as " + tokens.token(2) + ", a LexerException was expected.");
+        } catch (LexerException e) {
+            assertEquals("Integer overflow", e.getName());
+            assertEquals(4, e.getOffset());
+        }
+    }
+
+    @Test
+    public void testTrivia() throws LexerException {
+        String input = "// comment\n".repeat(100000) + "\n \t\n".repeat(100000) + "x // last";
+        Lexer lexer = new Lexer(new StringReader(input));
+        lexer.recordComments();
+
+        assertEquals(new Symbol(Token.IDENTIFIER, "x"), lexer.getNextSymbol());
+        assertEquals(new Symbol(Token.EOF, "<EOF>"), lexer.getNextSymbol());
+
+        TokenBuffer comments = lexer.comments();
+        assertEquals(100001, comments.size());
+        assertEquals("// comment", comments.content(0));
+        assertEquals("// last", comments.content(100000));
+    }
+
+    @Test
+    public void testParallelLexer() throws LexerException {
+        String[] inputs = {
+                "",
+                "  \n\n  ",
+                "var x int = 2; // \"not a string\n x = x * 10;\n",
+                "val s string = \"multi\nline // not a comment\n\n\"; writeln(s);\nwriteln(\"a\");\n",
+                "x = 1;\ny = \"unterminated\n 2147483648 \n z\n",
+                "proc p() void {\n    // \"\n    x = \"\n\";\n}\n\n   \n",
+        };
+        for (String input : inputs) {
+            TokenBuffer expected = new Lexer(new StringReader(input)).tokenize();
+            for (int chunkSize = 1; chunkSize <= input.length() + 1; chunkSize++) {
+                TokenBuffer actual = ParallelLexer.tokenize(input.toCharArray(), input.length(), new NamePool(),
+                        chunkSize);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.symbol(i), actual.symbol(i));
+                    assertEquals(expected.start(i), actual.start(i));
+                    assertEquals(expected.name(i), actual.name(i));
+                }
+            }
+        }
+
+        // UTF-8 sources: a chunk can start in the middle of a multi-byte char, but never in a token
+        String[] utf8 = {
+                inputs[3],
+                "val caf\u00E9 string = \"\u65E5\n\u672C\";\n// \uD83D\uDE00\nwriteln(caf\u00E9);\n",
+        };
+        for (String input : utf8) {
+            byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+            TokenBuffer expected = new Lexer(ByteBuffer.wrap(bytes)).tokenize();
+            for (int chunkSize = 1; chunkSize <= bytes.length + 1; chunkSize++) {
+                TokenBuffer actual = ParallelLexer.tokenize(bytes, bytes.length, new NamePool(), chunkSize);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.symbol(i), actual.symbol(i));
+                    assertEquals(expected.start(i), actual.start(i));
+                    assertEquals(expected.name(i), actual.name(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUtf8Bytes() throws LexerException {
+        String input = "val caf\u00E9 string = \"na\u00EFve \u65E5\u672C \uD83D\uDE00\"; // \u00FCn\u00EFcode \uD83D\uDE00\nwriteln(caf\u00E9 + \"\u00E9\");\nx<=10.5";
+        TokenBuffer chars = new Lexer(new StringReader(input)).tokenize();
+        TokenBuffer bytes = new Lexer(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8))).tokenize();
+
+        assertEquals(chars.size(), bytes.size());
+        for (int i = 0; i < chars.size(); i++) {
+            assertEquals(chars.symbol(i), bytes.symbol(i));
+            assertEquals(chars.name(i), bytes.name(i));
+        }
+        assertEquals("caf\u00E9", bytes.name(1));
+        assertEquals("na\u00EFve \u65E5\u672C \uD83D\uDE00", bytes.name(4));
+        assertEquals(9, chars.start(2));
+        assertEquals(10, bytes.start(2)); // offsets count bytes
+    }
+
+    @Test
+    public void testKeywords() {
+        String[] words = { "int", "real", "string", "bool", "void", "const", "record", "var", "val", "proc", "for",
+                "to", "by", "while", "if", "else", "return", "and", "or", "delete", "true", "false" };
+        for (String word : words) {
+            assertEquals(Symbol.findMatch(word), Keywords.get(word.toCharArray(), 0, word.length()));
+            assertNotNull(Keywords.get(word));
+        }
+
+        String[] identifiers = { "i", "ints", "Int", "vat", "records", "tt", "fi", "retur", "d" };
+        for (String identifier : identifiers) {
+            assertNull(Keywords.get(identifier.toCharArray(), 0, identifier.length()));
+            assertEquals(Token.IDENTIFIER, Symbol.findMatch(identifier));
+        }
+    }
+
+    @Test
+    public void testLongTrivia() throws LexerException {
+        for (int n = 0; n < 150; n += 7) {
+            String blanks = " \t\r\n".repeat(n);
+            String input = blanks + "x" + blanks + "// " + "comment ".repeat(n) + "\n" + blanks + "/ y //";
+            for (Lexer lexer : new Lexer[] { new Lexer(new StringReader(input)),
+                    new Lexer(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8))) }) {
+                lexer.recordComments();
+                assertEquals(new Symbol(Token.IDENTIFIER, "x"), lexer.getNextSymbol());
+                assertEquals(new Symbol(Token.DIVISION, "/"), lexer.getNextSymbol());
+                assertEquals(new Symbol(Token.IDENTIFIER, "y"), lexer.getNextSymbol());
+                assertEquals(new Symbol(Token.EOF, "<EOF>"), lexer.getNextSymbol());
+                assertEquals("// " + "comment ".repeat(n), lexer.comments().content(0));
+                assertEquals("//", lexer.comments().content(1));
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalLexer() throws LexerException {
+        String[] inserts = { "", "y", "9", " ", "\n", "\"", "//", "/", "=", "<", ">", "\"q\"", "1.5", "\u00E9" };
+        for (boolean utf8 : new boolean[] { false, true }) {
+            String source = "var x int = 12;\nproc main() void {\n    // loop\n    writeln(\"a b\");\n    x = x+1;\n}\n";
+            java.util.Random random = new java.util.Random(42);
+
+            TokenBuffer tokens = tokenize(source, utf8);
+            for (int edit = 0; edit < 500; edit++) {
+                int offset = random.nextInt(source.length() + 1);
+                int removed = random.nextInt(Math.min(4, source.length() - offset) + 1);
+                String inserted = inserts[random.nextInt(inserts.length)];
+                if (removed == 0 && inserted.isEmpty())
+                    continue;
+                String edited = source.substring(0, offset) + inserted + source.substring(offset + removed);
+
+                TokenBuffer expected;
+                boolean lexable = true;
+                try {
+                    expected = tokenize(edited, utf8);
+                } catch (LexerException e) {
+                    expected = tokenize(source, utf8);
+                    lexable = false;
+                }
+                int at = units(source, 0, offset, utf8);
+                int length = units(source, offset, offset + removed, utf8);
+                try {
+                    assertSame(tokens, IncrementalLexer.relex(tokens, at, length, inserted)); // updated in place
+                    assertTrue(lexable);
+                    source = edited;
+                } catch (LexerException e) {
+                    assertFalse(lexable); // the buffer is left unchanged
+                }
+
+                assertEquals(expected.size(), tokens.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.symbol(i), tokens.symbol(i));
+                    assertEquals(expected.start(i), tokens.start(i));
+                    assertEquals(expected.name(i), tokens.name(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalLexerCopiesWrappedSource() throws LexerException {
+        char[] chars = "var x int = 12345;".toCharArray();
+        TokenBuffer tokens = new Lexer(CharBuffer.wrap(chars)).tokenize();
+        IncrementalLexer.relex(tokens, 12, 2, "");
+        assertEquals("var x int = 12345;", new String(chars)); // the caller's array is not edited
+        assertEquals("345", tokens.content(4));
+
+        byte[] bytes = "var x int = 12345;".getBytes(StandardCharsets.UTF_8);
+        tokens = new Lexer(ByteBuffer.wrap(bytes)).tokenize();
+        IncrementalLexer.relex(tokens, 12, 2, "");
+        assertEquals("var x int = 12345;", new String(bytes, StandardCharsets.UTF_8));
+        assertEquals("345", tokens.content(4));
+    }
+
+    private static TokenBuffer tokenize(String source, boolean utf8) throws LexerException {
+        return utf8 ? new Lexer(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8))).tokenize()
+                : new Lexer(new StringReader(source)).tokenize();
+    }
+
+    /**
+     * @return the length of a part of a source, in chars or in UTF-8 bytes.
+     */
+    private static int units(String source, int from, int to, boolean utf8) {
+        return utf8 ? source.substring(from, to).getBytes(StandardCharsets.UTF_8).length : to - from;
+    }
+
+    @Test
+    public void testLineMap() throws LexerException {
+        String source = "var x int = 1;\n\nproc main() void {\n    x = 2;\n}";
+        Lexer lexer = new Lexer(new StringReader(source));
+        Symbol symbol;
+        do
+            symbol = lexer.getNextSymbol();
+        while (!symbol.content().equals("x") || symbol.offset() < 16);
+
+        LineMap lines = lexer.lines();
+        assertEquals(5, lines.lines());
+        assertEquals(source.indexOf("    x"), lines.lineStart(4));
+        assertEquals(4, lines.line(symbol.offset()));
+        assertEquals(5, lines.column(symbol.offset()));
+        assertEquals("1:1", lines.format(0));
+        assertEquals("1:15", lines.format(14)); // the newline ends its line
+        assertEquals("3:1", lines.format(16));
+
+        byte[] bytes = "val \u00E9t\u00E9 string = \"\u00E0\";\nx".getBytes(StandardCharsets.UTF_8);
+        LineMap utf8 = new LineMap(bytes, bytes.length);
+        assertEquals("1:9", utf8.format(10)); // 2 chars of 2 bytes before
+        assertEquals("2:1", utf8.format(bytes.length - 1));
+    }
 }
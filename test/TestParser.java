@@ -4,16 +4,28 @@ import compiler.Lexer.Token;
 import compiler.Nodes.*;
 import compiler.Nodes.ASTNode;
 import compiler.Nodes.Expr;
+import compiler.Nodes.ASTArena;
+import compiler.Nodes.ASTCodec;
+import compiler.Parser.ParallelParser;
+import compiler.Parser.ParseListener;
 import compiler.Parser.Parser;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class TestParser {
     private static final boolean VERBOSE = false;
@@ -212,18 +224,43 @@ public class TestParser {
         assertEquals(new TypeNode.Base(Token.BOOLTYPE), bool_result);
     }
 
+    @Test
+    public void testExpressions_leftAssociative() throws ParseException, LexerException {
+        ProgramNode ast = initParser("val x int = a - b - c * d / e < f or g and h;").getAST();
+        if (VERBOSE)
+            Parser.printAST(ast);
+        assertEquals("(((((a - b) - ((c * d) / e)) < f) or g) and h)", ast.getValVar().get(0).expression.toString());
+
+        // a flat chain doesn't use one stack frame per operand
+        String sum = "1" + " + 1".repeat(200_000);
+        ast = initParser("val y int = " + sum + ";").getAST();
+        assertEquals(1, ast.getValVar().size());
+    }
+
+    @Test
+    public void testExpressions_compact() throws ParseException, LexerException {
+        ProgramNode ast = initParser("val x int = 3; val y int = -(a + b) * 2;").getAST();
+
+        // no single-child wrappers: operator nodes and leaves only
+        assertSame(LiteralNode.Int.class, ast.getValVar().get(0).expression.getClass());
+        ArithTermNode.Multiplication product = (ArithTermNode.Multiplication) ast.getValVar().get(1).expression;
+        ArithFactorNode.Negative negative = (ArithFactorNode.Negative) product.left;
+        assertSame(BoolFactorNode.Addition.class, negative.left.getClass());
+        assertSame(LiteralNode.Int.class, product.right.getClass());
+    }
+
     @Test
     public void testExpressions_random_bool() throws ParseException, LexerException {
         Parser parser = initParser("val wow bool = ok and notOk or nok + bok;");
 
         ArrayList<CVVNode> valVar = new ArrayList<>();
         valVar.add(new CVVNode.Val(new IdentifierNode("wow"), new TypeNode.Base(Token.BOOLTYPE),
-                new ExpressionNode.And(
-                        new BoolTermNode(new IdentifierNode("ok")),
-                        new ExpressionNode.Or(new BoolTermNode(new IdentifierNode("notOk")),
-                                new ExpressionNode(
-                                        new BoolFactorNode.Addition(new BoolFactorNode(new IdentifierNode("nok")),
-                                                new BoolFactorNode(new IdentifierNode("bok"))))))));
+                new ExpressionNode.Or(
+                        new ExpressionNode.And(new BoolTermNode(new IdentifierNode("ok")),
+                                new ExpressionNode(new IdentifierNode("notOk"))),
+                        new ExpressionNode(
+                                new BoolFactorNode.Addition(new BoolFactorNode(new IdentifierNode("nok")),
+                                        new BoolFactorNode(new IdentifierNode("bok")))))));
 
         ProgramNode ast = parser.getAST();
         if (VERBOSE)
@@ -355,4 +392,330 @@ public class TestParser {
             Parser.printAST(ast);
         assertEquals(new ProgramNode(null, null, null, procedures), ast);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPositions() throws ParseException, LexerException {
+        Parser parser = initParser("var x int = 1;\nproc main() void {\n  x = x +;\n}");
+        try {
+            parser.getAST();
+            throw new AssertionError("A ParseException was expected.");
+        } catch (ParseException e) {
+            assertEquals("3:10", parser.lines().format(e.getErrorOffset())); // the ';' after '+'
+        }
+
+        parser = initParser("var x int = 1;\nproc main() void {\n  x = 2;\n}");
+        ProgramNode ast = parser.getAST();
+        assertEquals("1:1", parser.lines().format(ast.getValVar().get(0).offset));
+        assertEquals("2:1", parser.lines().format(ast.getProcedures().get(0).offset));
+
+        parser = initParser("x = 1;"); // an error on the first token is located too
+        try {
+            parser.getAST();
+            throw new AssertionError("A ParseException was expected.");
+        } catch (ParseException e) {
+            assertEquals("1:1", parser.lines().format(e.getErrorOffset()));
+        }
+
+        parser = initParser("proc main() void {\n  for i = 1 to 10 by 2 { }\n}");
+        ArrayList<ASTNode> statements = new ArrayList<>();
+        parser.getAST().getProcedures().get(0).getBlock().children(statements);
+        ForNode.By loop = (ForNode.By) statements.get(0);
+        assertEquals("2:11", parser.lines().format(loop.from.offset));
+        assertEquals("2:16", parser.lines().format(loop.to.offset));
+        assertEquals("2:22", parser.lines().format(loop.by.offset));
+    }
+
+    @Test
+    public void testParallelParser() throws ParseException, LexerException {
+        StringBuilder program = new StringBuilder("const n int = 3;\nvar total int = 0;\n");
+        for (int p = 0; p < 300; p++)
+            program.append("proc p").append(p).append("(a int) int {\n    if a > ").append(p)
+                    .append(" { total = total + a; } else { while a < 10 { a = a + 1; } }\n    return a * n;\n}\n");
+        String source = program.toString();
+
+        ProgramNode sequential = initParser(source).getAST();
+        ProgramNode parallel = ParallelParser.parse(new Lexer(new StringReader(source)).tokenize());
+        assertEquals(300, parallel.getProcedures().size());
+        assertEquals(sequential, parallel);
+        assertEquals(sequential.toString(), parallel.toString());
+
+        // the first error in source order, as reported by the sequential parser
+        String broken = source.replace("proc p120(a int) int {\n    if a > 120", "proc p120(a int) int {\n    if a >")
+                .replace("proc p200(a int)", "proc p200(a int,)");
+        ParseException expected = null;
+        try {
+            initParser(broken).getAST();
+        } catch (ParseException e) {
+            expected = e;
+        }
+        try {
+            ParallelParser.parse(new Lexer(new StringReader(broken)).tokenize());
+            throw new AssertionError("A ParseException was expected.");
+        } catch (ParseException e) {
+            assertEquals(expected.getMessage(), e.getMessage());
+            assertEquals(expected.getErrorOffset(), e.getErrorOffset());
+        }
+
+        // a large program is parsed in parallel while recovering too, and its errors are the sequential ones
+        for (int p = 300; p < 2000; p++)
+            program.append("proc p").append(p).append("(a int) int {\n    if a > ").append(p)
+                    .append(" { total = total + a; } else { while a < 10 { a = a + 1; } }\n    return a * n;\n}\n");
+        String large = program.toString();
+        ArrayList<ParseException> errors = new ArrayList<>();
+        assertEquals(initParser(large).getAST(),
+                new Parser(new Lexer(new StringReader(large)).tokenize()).getAST(errors));
+        assertEquals(0, errors.size());
+
+        String largeBroken = large
+                .replace("proc p120(a int) int {\n    if a > 120", "proc p120(a int) int {\n    if a >")
+                .replace("proc p1200(a int)", "proc p1200(a int,)");
+        ArrayList<ParseException> expectedErrors = new ArrayList<>();
+        ProgramNode expectedAST = initParser(largeBroken).getAST(expectedErrors);
+        assertEquals(expectedAST, new Parser(new Lexer(new StringReader(largeBroken)).tokenize()).getAST(errors));
+        assertEquals(expectedErrors.size(), errors.size());
+        for (int i = 0; i < errors.size(); i++) {
+            assertEquals(expectedErrors.get(i).getMessage(), errors.get(i).getMessage());
+            assertEquals(expectedErrors.get(i).getErrorOffset(), errors.get(i).getErrorOffset());
+        }
+    }
+
+    @Test
+    public void testRecovery() throws ParseException, LexerException {
+        String source = "record R { a int; b ; }\n" // 1:21
+                + "var x int = 1 +;\n"            // 2:16
+                + "proc f() void {\n"
+                + "  x = ;\n"                      // 4:7
+                + "  if x > { x = 2; }\n"          // 5:10
+                + "  x = 3;\n"
+                + "}\n"
+                + ") proc g() int {\n"             // 8:1
+                + "  return x;\n"
+                + "}\n";
+        Parser parser = initParser(source);
+        ParseException first = null;
+        try {
+            parser.getAST();
+        } catch (ParseException e) {
+            first = e;
+        }
+
+        parser = initParser(source);
+        ArrayList<ParseException> errors = new ArrayList<>();
+        ProgramNode ast = parser.getAST(errors);
+        ArrayList<String> positions = new ArrayList<>();
+        for (ParseException e : errors)
+            positions.add(parser.lines().format(e.getErrorOffset()));
+        assertEquals("[1:21, 2:16, 4:7, 5:10, 8:1]", positions.toString());
+        assertEquals(first.getMessage(), errors.get(0).getMessage());
+
+        // the declarations and statements without errors are kept
+        assertEquals(0, ast.getValVar().size());
+        assertEquals(2, ast.getProcedures().size());
+        ProcedureNode f = initParser("proc f() void { x = 3; }").getAST().getProcedures().get(0);
+        assertEquals(f, ast.getProcedures().get(0));
+        assertEquals("g", ast.getProcedures().get(1).identifier.name);
+
+        errors.clear();
+        initParser("proc f() void {\n  x = 1;\n").getAST(errors); // unclosed block
+        assertEquals(1, errors.size());
+        errors.clear();
+        initParser("proc main() void { x = 2; }").getAST(errors);
+        assertEquals(0, errors.size());
+    }
+
+    @Test
+    public void testASTCodec() throws ParseException, LexerException, IOException {
+        byte[] source = Files.readAllBytes(Path.of("code_example.lang"));
+        byte[] hash = ASTCodec.hash(ByteBuffer.wrap(source));
+        ProgramNode ast = new Parser(new Lexer(ByteBuffer.wrap(source))).getAST();
+
+        byte[] data = ASTCodec.encode(ast, hash);
+        ProgramNode decoded = ASTCodec.decode(data, hash);
+        assertEquals(ast, decoded);
+        assertEquals(ast.toString(), decoded.toString());
+        assertEquals(ast.getProcedures().get(1).offset, decoded.getProcedures().get(1).offset);
+        assertEquals(ast.getProcedures().get(1).identifier.name, decoded.getProcedures().get(1).identifier.name);
+
+        // stale or corrupted caches
+        assertNull(ASTCodec.decode(data, ASTCodec.hash(ByteBuffer.wrap("proc main() void {}".getBytes()))));
+        try {
+            ASTCodec.decode(Arrays.copyOf(data, data.length - 3), hash);
+            throw new AssertionError("An IOException was expected.");
+        } catch (IOException e) {
+            assertEquals("Corrupted AST cache.", e.getMessage());
+        }
+
+        // long chains of operators and literals of every kind
+        StringBuilder sum = new StringBuilder("val x int = -1");
+        for (int i = 0; i < 100000; i++)
+            sum.append(" + ").append(i);
+        String program = sum + ";\nval s string = \"\u00e9t\u00e9\";\nval r real = 2.5;\nval b bool = false;";
+        hash = ASTCodec.hash(ByteBuffer.wrap(program.getBytes(StandardCharsets.UTF_8)));
+        ast = initParser(program).getAST();
+        decoded = ASTCodec.decode(ASTCodec.encode(ast, hash), hash);
+        assertEquals(ast.getValVar().get(1).toString(), decoded.getValVar().get(1).toString());
+        assertEquals(ast.getValVar().subList(1, 4), decoded.getValVar().subList(1, 4));
+        assertEquals(ast.getValVar().get(0).expression.offset, decoded.getValVar().get(0).expression.offset);
+    }
+
+    @Test
+    public void testLazyParser() throws ParseException, LexerException {
+        String source = "var x int = b(1);\n"
+                + "proc main() void { if x > 0 { a(); } }\n"
+                + "proc a() void { while x > 0 { x = x - 1; } }\n"
+                + "proc b(i int) int { return i; }\n"
+                + "proc c() void { x = ; }\n"; // never called
+        ProgramNode ast = Parser.lazy(new Lexer(new StringReader(source)).tokenize()).getAST();
+        assertEquals(4, ast.getProcedures().size());
+        for (ProcedureNode p : ast.getProcedures())
+            assertEquals(false, p.isParsed());
+
+        ast.retainReachable();
+        assertEquals(3, ast.getProcedures().size());
+        ProgramNode eager = initParser(source.replace("x = ;", "x = 0;")).getAST();
+        eager.getProcedures().remove(3);
+        assertEquals(eager, ast);
+
+        ProcedureNode c = Parser.lazy(new Lexer(new StringReader(source)).tokenize()).getAST().getProcedures().get(3);
+        try {
+            c.getBlock();
+            throw new AssertionError("A ParseException was expected.");
+        } catch (ParseException e) {
+            assertEquals(source.indexOf("; }\n", source.indexOf("x = ;")), e.getErrorOffset());
+        }
+
+        // without main every procedure is kept, and parsed
+        String library = source.replace("proc main()", "proc other()");
+        ast = Parser.lazy(new Lexer(new StringReader(library)).tokenize()).getAST();
+        try {
+            ast.retainReachable();
+            throw new AssertionError("A ParseException was expected.");
+        } catch (ParseException e) {
+            assertEquals(library.indexOf("; }\n", library.indexOf("x = ;")), e.getErrorOffset());
+        }
+        ast = Parser.lazy(new Lexer(new StringReader(library.replace("x = ;", "x = 0;"))).tokenize()).getAST();
+        ast.retainReachable();
+        assertEquals(4, ast.getProcedures().size());
+        for (ProcedureNode p : ast.getProcedures())
+            assertEquals(true, p.isParsed());
+    }
+
+    @Test
+    public void testArena() throws ParseException, LexerException, IOException {
+        byte[] source = Files.readAllBytes(Path.of("code_example.lang"));
+        ProgramNode ast = new Parser(new Lexer(ByteBuffer.wrap(source))).getAST();
+        byte[] hash = ASTCodec.hash(ByteBuffer.wrap(source));
+        byte[] data = ASTCodec.encode(ast, hash);
+        ASTArena arena = ASTCodec.arena(data, hash);
+        assertEquals(ast, arena.cursor().node());
+        assertEquals(ast.toString(), arena.cursor().node().toString());
+        assertNull(ASTCodec.arena(data, ASTCodec.hash(ByteBuffer.wrap(new byte[0]))));
+        try {
+            ASTCodec.arena(Arrays.copyOf(data, data.length - 3), hash);
+            throw new AssertionError("An IOException was expected.");
+        } catch (IOException e) {
+            assertEquals("Corrupted AST cache.", e.getMessage());
+        }
+
+        // the program walked with a cursor, the bodies built from the arena when needed
+        ProgramNode program = arena.program();
+        assertEquals(false, program.getProcedures().get(0).isParsed());
+        assertEquals(ast.getProcedures().get(0).offset, program.getProcedures().get(0).offset);
+        assertEquals(ast, program);
+        assertEquals(true, program.getProcedures().get(0).isParsed());
+
+        // the procedures are the last children of the root
+        ASTArena.Cursor cursor = arena.cursor();
+        assertSame(ProgramNode.class, cursor.kind());
+        assertEquals(true, cursor.firstChild());
+        int procedures = 0;
+        do {
+            if (cursor.kind() == ProcedureNode.class) {
+                ASTNode procedure = cursor.node();
+                assertEquals(ast.getProcedures().get(procedures), procedure);
+                assertEquals(ast.getProcedures().get(procedures).offset, procedure.offset);
+                assertEquals(true, cursor.firstChild());
+                assertEquals(ast.getProcedures().get(procedures++).identifier.name, cursor.name());
+                assertEquals(true, cursor.parent());
+            }
+        } while (cursor.nextSibling());
+        assertEquals(ast.getProcedures().size(), procedures);
+        assertEquals(true, cursor.parent());
+        assertEquals(false, cursor.parent());
+
+        // every node is visited once by a depth-first walk
+        cursor = arena.cursor();
+        int visited = 1;
+        while (true) {
+            if (cursor.firstChild() || cursor.nextSibling()) {
+                visited++;
+                continue;
+            }
+            boolean next = false;
+            while (cursor.parent())
+                if (next = cursor.nextSibling())
+                    break;
+            if (!next)
+                break;
+            visited++;
+        }
+        assertEquals(arena.size(), visited);
+    }
+
+    @Test
+    public void testListener() throws ParseException, LexerException {
+        String source = "const n int = 2;\n"
+                + "record P { x int; }\n"
+                + "var g int = f(n);\n"
+                + "proc f(i int) int {\n"
+                + "    var j int = i;\n"
+                + "    if j > 0 { writeInt(f(j - 1)); }\n"
+                + "    return j;\n"
+                + "}\n";
+        StringBuilder events = new StringBuilder();
+        initParser(source).parse(new ParseListener() {
+            @Override
+            public void declaration(Token kind, String name, int offset) {
+                events.append(kind).append(' ').append(name).append('@').append(offset).append('\n');
+            }
+
+            @Override
+            public void startProcedure(String name, int offset) {
+                events.append("proc ").append(name).append('@').append(offset).append('\n');
+            }
+
+            @Override
+            public void endProcedure(String name, int end) {
+                events.append("end ").append(name).append('@').append(end).append('\n');
+            }
+
+            @Override
+            public void startStatement(int offset) {
+                events.append("{@").append(offset).append(' ');
+            }
+
+            @Override
+            public void endStatement(Class<? extends ASTNode> kind) {
+                events.append(kind.getSimpleName()).append("}\n");
+            }
+
+            @Override
+            public void call(String name, int offset) {
+                events.append("call ").append(name).append('@').append(offset).append(' ');
+            }
+        });
+
+        int j = source.indexOf("var j");
+        int write = source.indexOf("writeInt");
+        assertEquals("CONST n@0\n"
+                + "RECORD P@17\n"
+                + "VAR g@37\n"
+                + "call f@49 "
+                + "proc f@55\n"
+                + "{@" + j + " VAR j@" + j + "\nVar}\n"
+                + "{@" + (j + 19) + " {@" + write + " call writeInt@" + write + " call f@" + (write + 9) + " "
+                + "FunctionCallNode}\nIfNode}\n"
+                + "{@" + source.indexOf("return") + " ReturnNode}\n"
+                + "end f@" + source.lastIndexOf('}') + "\n", events.toString());
+    }
+}
@@ -1,12 +1,20 @@
 import compiler.Exceptions.LexerException;
+import compiler.Lexer.Token;
+import compiler.Nodes.BoolFactorNode;
+import compiler.Nodes.Expr;
+import compiler.Nodes.IdentifierNode;
 import compiler.Nodes.ProgramNode;
+import compiler.Nodes.TypeNode;
 import compiler.Parser.Parser;
 import compiler.Visitors.SemanticVisitor;
 import compiler.Exceptions.SemanticException.SemanticException;
+import compiler.SemanticAnalyzer.SType;
 import compiler.SemanticAnalyzer.SymbolTable;
 import org.junit.Test;
 
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -214,4 +222,39 @@ public class TestSemanticAnalyzer {
         assertThrows("proc rof(i int) bool { for i=1 to 100 {} }");
         assertThrows("proc yb(i int) bool { for i=1 to 100 by 2 {} }");
     }
+
+    @Test
+    public void resolvedTypes() throws ParseException, SemanticException, LexerException {
+        // a left-deep chain: each level used to resolve the types of the whole chain below it again
+        int terms = 1000;
+        StringBuilder code = new StringBuilder("const x int = 1;\nvar y real = x");
+        for (int i = 1; i < terms; i++)
+            code.append(i == terms / 2 ? " + 0.5" : " - 2");
+        code.append(";");
+        ProgramNode ast = TestParser.initParser(code.toString()).getAST();
+        ast.accept(new SemanticVisitor(), new SymbolTable());
+
+        Expr e = ast.getValVar().get(0).expression;
+        for (int i = terms - 1; i > 0; i--) {
+            assertSame(i >= terms / 2 ? SType.REAL : SType.INT, e.stype);
+            e = ((BoolFactorNode) e).left;
+        }
+        assertSame(SType.INT, e.stype);
+    }
+
+    @Test
+    public void canonicalTypes() throws ParseException, SemanticException {
+        assertSame(SType.array(SType.INT), SType.array(SType.INT));
+        assertSame(SType.INT_ARRAY, SType.getSType(new TypeNode.Array(new TypeNode.Base(Token.INTTYPE))));
+        assertNotSame(SType.array(SType.INT), SType.array(SType.REAL));
+        assertSame(SType.id("Person"), SType.id(new String("Person")));
+        assertSame(SType.function(SType.VOID, new ArrayList<>(List.of(SType.array(SType.BOOL)))),
+                SType.function(SType.VOID, new ArrayList<>(List.of(SType.array(SType.BOOL)))));
+        assertNotSame(SType.record(new ArrayList<>()), SType.record(new ArrayList<>())); // one per declaration
+
+        // the types of the symbol table are the canonical ones
+        SymbolTable st = new SymbolTable();
+        assertSame(SType.function(SType.VOID, new ArrayList<>(List.of(SType.STRING))),
+                st.get(new IdentifierNode("writeln")));
+    }
 }